@@ -0,0 +1,211 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Java Flight Recorder events. This class is only compiled with the <code>jfr</code>
+ * profile, because the JFR API isn't part of the Java 8 API, and it is only loaded by
+ * {@link YamlFlightRecorder} when the JVM has the JFR API.
+ */
+final class JfrEvents implements FlightRecorderEvents {
+
+	private final EventType parseType;
+
+	private final EventType aliasExpansionType;
+
+	private final EventType elementNameFormatType;
+
+	/**
+	 * Registers the event types, so that checking if they are enabled doesn't need an
+	 * event instance.
+	 */
+	JfrEvents() {
+		parseType = EventType.getEventType(ParseEvent.class);
+		aliasExpansionType = EventType.getEventType(AliasExpansionEvent.class);
+		elementNameFormatType = EventType.getEventType(ElementNameFormatEvent.class);
+	}
+
+	@Override
+	public Object beginParse() {
+		if (!parseType.isEnabled()) {
+			return null;
+		}
+		ParseEvent event = new ParseEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void commitParse(Object event, String systemId, long bytesRead, long charsRead, long documentCount, long eventCount, boolean failed) {
+		ParseEvent parseEvent = (ParseEvent) event;
+		parseEvent.end();
+		if (parseEvent.shouldCommit()) {
+			parseEvent.systemId = systemId;
+			parseEvent.bytesRead = bytesRead;
+			parseEvent.charsRead = charsRead;
+			parseEvent.documentCount = documentCount;
+			parseEvent.eventCount = eventCount;
+			parseEvent.failed = failed;
+			parseEvent.commit();
+		}
+	}
+
+	@Override
+	public Object beginAliasExpansion() {
+		if (!aliasExpansionType.isEnabled()) {
+			return null;
+		}
+		AliasExpansionEvent event = new AliasExpansionEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void commitAliasExpansion(Object event, String anchor, String elementName, int replayedEventCount) {
+		AliasExpansionEvent aliasExpansionEvent = (AliasExpansionEvent) event;
+		aliasExpansionEvent.end();
+		if (aliasExpansionEvent.shouldCommit()) {
+			aliasExpansionEvent.anchor = anchor;
+			aliasExpansionEvent.elementName = elementName;
+			aliasExpansionEvent.replayedEventCount = replayedEventCount;
+			aliasExpansionEvent.commit();
+		}
+	}
+
+	@Override
+	public Object beginElementNameFormat() {
+		if (!elementNameFormatType.isEnabled()) {
+			return null;
+		}
+		ElementNameFormatEvent event = new ElementNameFormatEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void commitElementNameFormat(Object event, String key, String name, boolean cacheCleared) {
+		ElementNameFormatEvent elementNameFormatEvent = (ElementNameFormatEvent) event;
+		elementNameFormatEvent.end();
+		if (elementNameFormatEvent.shouldCommit()) {
+			elementNameFormatEvent.key = key;
+			elementNameFormatEvent.name = name;
+			elementNameFormatEvent.cacheCleared = cacheCleared;
+			elementNameFormatEvent.commit();
+		}
+	}
+
+	@Name("org.smooks.cartridges.yaml.Parse")
+	@Label("YAML Parse")
+	@Description("The parse of a YAML stream by the Smooks YAML reader")
+	@Category({"Smooks", "YAML"})
+	@Enabled(false)
+	@StackTrace(false)
+	static final class ParseEvent extends Event {
+
+		@Label("System Id")
+		String systemId;
+
+		@Label("Bytes Read")
+		@Description("-1 if the YAML stream was supplied as a character stream")
+		@DataAmount
+		long bytesRead;
+
+		@Label("Chars Read")
+		long charsRead;
+
+		@Label("Document Count")
+		long documentCount;
+
+		@Label("Event Count")
+		long eventCount;
+
+		@Label("Failed")
+		boolean failed;
+	}
+
+	@Name("org.smooks.cartridges.yaml.AliasExpansion")
+	@Label("YAML Alias Expansion")
+	@Description("The resolution of an alias by replaying the events of its anchor")
+	@Category({"Smooks", "YAML"})
+	@Enabled(false)
+	@StackTrace(false)
+	static final class AliasExpansionEvent extends Event {
+
+		@Label("Anchor")
+		String anchor;
+
+		@Label("Element Name")
+		String elementName;
+
+		@Label("Replayed Event Count")
+		int replayedEventCount;
+	}
+
+	@Name("org.smooks.cartridges.yaml.ElementNameFormat")
+	@Label("YAML Element Name Format")
+	@Description("The formatting of a key name that isn't in the cache of the element name formatter")
+	@Category({"Smooks", "YAML"})
+	@Enabled(false)
+	@StackTrace(false)
+	static final class ElementNameFormatEvent extends Event {
+
+		@Label("Key")
+		String key;
+
+		@Label("Element Name")
+		String name;
+
+		@Label("Cache Cleared")
+		boolean cacheCleared;
+	}
+}
@@ -0,0 +1,117 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.jfr;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.smooks.Smooks;
+import org.smooks.cartridges.yaml.AliasStrategy;
+import org.smooks.cartridges.yaml.YamlReaderConfigurator;
+import org.smooks.support.SmooksUtil;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Only compiled with the <code>jfr</code> profile, like {@link JfrEvents}.
+ */
+public class YamlFlightRecorderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test_flight_recorder() throws Exception {
+        Assume.assumeTrue(FlightRecorder.isAvailable());
+
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE).setPreferByteStream(true).setKeyWhitspaceReplacement("_"));
+        Path recordingFile = temporaryFolder.newFile("yaml.jfr").toPath();
+        try (Recording recording = new Recording()) {
+            recording.enable("org.smooks.cartridges.yaml.Parse");
+            recording.enable("org.smooks.cartridges.yaml.AliasExpansion");
+            recording.enable("org.smooks.cartridges.yaml.ElementNameFormat");
+            recording.start();
+            SmooksUtil.filterAndSerialize(smooks.createExecutionContext(), new ByteArrayInputStream("a: &a\n  b c: 1\nc: *a\n".getBytes(StandardCharsets.UTF_8)), smooks);
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> parseEvents = new ArrayList<>();
+        List<RecordedEvent> aliasExpansionEvents = new ArrayList<>();
+        List<String> formattedKeys = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+            String eventName = event.getEventType().getName();
+            if (eventName.equals("org.smooks.cartridges.yaml.Parse")) {
+                parseEvents.add(event);
+            } else if (eventName.equals("org.smooks.cartridges.yaml.AliasExpansion")) {
+                aliasExpansionEvents.add(event);
+            } else if (eventName.equals("org.smooks.cartridges.yaml.ElementNameFormat")) {
+                formattedKeys.add(event.getString("key"));
+            }
+        }
+
+        Assert.assertEquals(1, parseEvents.size());
+        Assert.assertEquals(21, parseEvents.get(0).getLong("bytesRead"));
+        Assert.assertEquals(21, parseEvents.get(0).getLong("charsRead"));
+        Assert.assertEquals(1, parseEvents.get(0).getLong("documentCount"));
+        Assert.assertEquals(13, parseEvents.get(0).getLong("eventCount"));
+        Assert.assertFalse(parseEvents.get(0).getBoolean("failed"));
+        Assert.assertEquals(1, aliasExpansionEvents.size());
+        Assert.assertEquals("a", aliasExpansionEvents.get(0).getString("anchor"));
+        Assert.assertEquals("c", aliasExpansionEvents.get(0).getString("elementName"));
+        // The mapping start, the key, the value and the mapping end
+        Assert.assertEquals(4, aliasExpansionEvents.get(0).getInt("replayedEventCount"));
+        Assert.assertTrue(formattedKeys.contains("b c"));
+    }
+}
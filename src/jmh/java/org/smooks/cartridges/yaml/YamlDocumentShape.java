@@ -0,0 +1,189 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml;
+
+import org.smooks.support.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * The YAML document shapes used by the {@link YamlReaderBenchmark}. Each shape generates a deterministic
+ * input of which the size scales with the <code>size</code> parameter.
+ */
+public enum YamlDocumentShape {
+
+    /**
+     * A single map with many scalar entries.
+     */
+    FLAT_MAP {
+        @Override
+        public String generate(int size) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < size * 10; i++) {
+                builder.append("key").append(i).append(": value ").append(i).append('\n');
+            }
+            return builder.toString();
+        }
+    },
+
+    /**
+     * Maps nested <code>size</code> levels deep, each level carrying a few scalar entries.
+     */
+    DEEP_NESTING {
+        @Override
+        public String generate(int size) {
+            StringBuilder builder = new StringBuilder();
+            for (int level = 0; level < size; level++) {
+                indent(builder, level).append("name").append(level).append(": level ").append(level).append('\n');
+                indent(builder, level).append("count").append(level).append(": ").append(level).append('\n');
+                indent(builder, level).append("child").append(level).append(":\n");
+            }
+            indent(builder, size).append("leaf: true\n");
+            return builder.toString();
+        }
+    },
+
+    /**
+     * A long sequence of small maps.
+     */
+    WIDE_SEQUENCE {
+        @Override
+        public String generate(int size) {
+            StringBuilder builder = new StringBuilder("items:\n");
+            for (int i = 0; i < size * 10; i++) {
+                builder.append("  - id: ").append(i).append('\n');
+                builder.append("    name: item ").append(i).append('\n');
+                builder.append("    tags: [a, b, c]\n");
+            }
+            return builder.toString();
+        }
+    },
+
+    /**
+     * A stream of many small documents.
+     */
+    MULTI_DOCUMENT {
+        @Override
+        public String generate(int size) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < size; i++) {
+                builder.append("---\n");
+                builder.append("id: ").append(i).append('\n');
+                builder.append("name: document ").append(i).append('\n');
+                builder.append("values:\n  - 1\n  - 2\n  - 3\n");
+            }
+            return builder.toString();
+        }
+    },
+
+    /**
+     * Anchored reference records, including nested anchors, which are referenced many times by aliases.
+     */
+    ANCHORS {
+        @Override
+        public String generate(int size) {
+            StringBuilder builder = new StringBuilder("references:\n");
+            for (int i = 0; i < size; i++) {
+                builder.append("  ref").append(i).append(": &ref").append(i).append('\n');
+                builder.append("    code: &code").append(i).append(" C").append(i).append('\n');
+                builder.append("    address: &address").append(i).append('\n');
+                builder.append("      street: street ").append(i).append('\n');
+                builder.append("      city: city ").append(i).append('\n');
+            }
+            builder.append("records:\n");
+            for (int i = 0; i < size * 5; i++) {
+                int ref = i % size;
+                builder.append("  - reference: *ref").append(ref).append('\n');
+                builder.append("    code: *code").append(ref).append('\n');
+                builder.append("    address: *address").append(ref).append('\n');
+            }
+            return builder.toString();
+        }
+    },
+
+    /**
+     * The valid input messages of the unit tests, concatenated <code>size</code> times as a multi document stream.
+     */
+    FIXTURES {
+        private final String[] fixtures = {"yaml_types", "yaml_map", "yaml_array", "yaml_map_array", "yaml_array_map",
+                "yaml_map_array_map", "yaml_multi_documents", "alias_with_refer", "alias_with_resolve", "several_replacements"};
+
+        @Override
+        public String generate(int size) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < size; i++) {
+                for (String fixture : fixtures) {
+                    String input = readFixture(fixture);
+                    if (!input.startsWith("---")) {
+                        builder.append("---\n");
+                    }
+                    builder.append(input).append('\n');
+                }
+            }
+            return builder.toString();
+        }
+    };
+
+    /**
+     * @param size The scale factor of the generated input.
+     * @return The YAML input.
+     */
+    public abstract String generate(int size);
+
+    private static StringBuilder indent(StringBuilder builder, int level) {
+        for (int i = 0; i < level; i++) {
+            builder.append("  ");
+        }
+        return builder;
+    }
+
+    private static String readFixture(String name) {
+        try (InputStream inputStream = YamlDocumentShape.class.getResourceAsStream("/test/" + name + "/input-message.yaml")) {
+            return StreamUtils.readStreamAsString(inputStream, "UTF-8");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.smooks.Smooks;
+import org.smooks.api.ExecutionContext;
+import org.smooks.api.Registry;
+import org.smooks.engine.lifecycle.PostConstructLifecyclePhase;
+import org.smooks.engine.lookup.LifecycleManagerLookup;
+import org.smooks.io.payload.StringSource;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link YamlReader} throughput for different YAML document shapes and alias strategies.
+ * <p/>
+ * The <code>parse</code> benchmark drives {@link YamlReader#parse(InputSource)} directly with a no-op
+ * {@link org.xml.sax.ContentHandler}, so it only measures the YAML to SAX conversion. The <code>filterSource</code>
+ * benchmark runs the same input through a complete {@link Smooks#filterSource} execution.
+ * <p/>
+ * Run with <code>mvn -Pjmh test-compile exec:exec</code>. The allocation rate is reported by the gc profiler,
+ * which is enabled by default through the <code>jmh.args</code> property.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class YamlReaderBenchmark {
+
+    @Param({"FLAT_MAP", "DEEP_NESTING", "WIDE_SEQUENCE", "MULTI_DOCUMENT", "ANCHORS", "FIXTURES"})
+    public YamlDocumentShape shape;
+
+    @Param({"REFER", "RESOLVE", "REFER_RESOLVE"})
+    public AliasStrategy aliasStrategy;
+
+    @Param({"100"})
+    public int size;
+
+    private String yaml;
+
+    private Smooks smooks;
+
+    private ExecutionContext executionContext;
+
+    private YamlReader yamlReader;
+
+    private final CountingContentHandler contentHandler = new CountingContentHandler();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        yaml = shape.generate(size);
+
+        YamlReaderConfigurator readerConfigurator = new YamlReaderConfigurator().setAliasStrategy(aliasStrategy);
+
+        smooks = new Smooks();
+        smooks.setReaderConfig(readerConfigurator);
+        executionContext = smooks.createExecutionContext();
+
+        // Initialize the reader the same way Smooks does it for a filter execution...
+        Registry registry = smooks.getApplicationContext().getRegistry();
+        yamlReader = new YamlReader();
+        registry.lookup(new LifecycleManagerLookup()).applyPhase(yamlReader,
+                new PostConstructLifecyclePhase(new org.smooks.engine.injector.Scope(registry, readerConfigurator.toConfig().get(0), yamlReader)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        smooks.close();
+    }
+
+    @Benchmark
+    public long parse() throws Exception {
+        contentHandler.count = 0;
+
+        yamlReader.setExecutionContext(executionContext);
+        yamlReader.setContentHandler(contentHandler);
+        yamlReader.parse(new InputSource(new StringReader(yaml)));
+
+        return contentHandler.count;
+    }
+
+    @Benchmark
+    public ExecutionContext filterSource() {
+        ExecutionContext filterExecutionContext = smooks.createExecutionContext();
+        smooks.filterSource(filterExecutionContext, new StringSource(yaml));
+
+        return filterExecutionContext;
+    }
+
+    /**
+     * Counts the SAX events so that the benchmark has an observable result.
+     */
+    private static class CountingContentHandler extends DefaultHandler {
+
+        private long count;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, org.xml.sax.Attributes attributes) {
+            count++;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            count += length;
+        }
+    }
+}
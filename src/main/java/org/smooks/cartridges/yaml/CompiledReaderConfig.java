@@ -0,0 +1,167 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml;
+
+import org.smooks.api.resource.config.ResourceConfig;
+import org.smooks.cartridges.yaml.handler.PathProjection;
+import org.smooks.cartridges.yaml.handler.StopCondition;
+import org.smooks.cartridges.yaml.metrics.ReaderMetrics;
+import org.yaml.snakeyaml.LoaderOptions;
+
+/**
+ * The immutable configuration of a {@link YamlReader}, as it is used by the parses.
+ * <p/>
+ * The configuration is compiled once and shared by all the parses of the reader, which
+ * can run concurrently. The parse contexts of the reader are built for one compiled
+ * configuration and are dropped when the configuration changes.
+ */
+final class CompiledReaderConfig {
+
+	final ElementNameFormatter elementNameFormatter;
+
+	final String rootName;
+
+	final String documentName;
+
+	final String arrayElementName;
+
+	final String anchorAttributeName;
+
+	final String aliasAttributeName;
+
+	final boolean indent;
+
+	final AliasStrategy aliasStrategy;
+
+	final long anchorMemoryBudget;
+
+	final int readerBufferSize;
+
+	final boolean preferByteStream;
+
+	final int nestingDepthLimit;
+
+	final boolean pipelined;
+
+	final int pipelineCapacity;
+
+	/**
+	 * <code>null</code> if the reader isn't pipelined.
+	 */
+	final PipelineExecutor pipelineExecutor;
+
+	final boolean nativeTokenizer;
+
+	/**
+	 * <code>null</code> if all the elements are needed.
+	 */
+	final PathProjection projection;
+
+	final boolean autoProjection;
+
+	/**
+	 * <code>null</code> if the whole YAML stream is read.
+	 */
+	final StopCondition stopCondition;
+
+	/**
+	 * <code>null</code> if the statistics of the parses aren't published.
+	 */
+	final ReaderMetrics metrics;
+
+	/**
+	 * <code>null</code> if the scalar elements don't get a type attribute.
+	 */
+	final String typeAttributeName;
+
+	final boolean typedValues;
+
+	/**
+	 * {@link Integer#MAX_VALUE} if the block scalars are always produced as one string.
+	 */
+	final int largeScalarThreshold;
+
+	final ResourceConfig resourceConfig;
+
+	/**
+	 * Only read by the parsers after it is built.
+	 */
+	final LoaderOptions loaderOptions;
+
+	CompiledReaderConfig(ElementNameFormatter elementNameFormatter, String rootName, String documentName, String arrayElementName,
+						 String anchorAttributeName, String aliasAttributeName, boolean indent, AliasStrategy aliasStrategy,
+						 long anchorMemoryBudget, int readerBufferSize, boolean preferByteStream, boolean processComments, int codePointLimit,
+						 int nestingDepthLimit, boolean pipelined, int pipelineCapacity, PipelineExecutor pipelineExecutor, boolean nativeTokenizer,
+						 PathProjection projection, boolean autoProjection, StopCondition stopCondition,
+						 ReaderMetrics metrics, String typeAttributeName, boolean typedValues, int largeScalarThreshold,
+						 ResourceConfig resourceConfig) {
+		this.elementNameFormatter = elementNameFormatter;
+		this.rootName = rootName;
+		this.documentName = documentName;
+		this.arrayElementName = arrayElementName;
+		this.anchorAttributeName = anchorAttributeName;
+		this.aliasAttributeName = aliasAttributeName;
+		this.indent = indent;
+		this.aliasStrategy = aliasStrategy;
+		this.anchorMemoryBudget = anchorMemoryBudget;
+		this.readerBufferSize = readerBufferSize;
+		this.preferByteStream = preferByteStream;
+		this.nestingDepthLimit = nestingDepthLimit;
+		this.pipelined = pipelined;
+		this.pipelineCapacity = pipelineCapacity;
+		this.pipelineExecutor = pipelineExecutor;
+		this.nativeTokenizer = nativeTokenizer;
+		this.projection = projection;
+		this.autoProjection = autoProjection;
+		this.stopCondition = stopCondition;
+		this.metrics = metrics;
+		this.typeAttributeName = typeAttributeName;
+		this.typedValues = typedValues;
+		this.largeScalarThreshold = largeScalarThreshold;
+		this.resourceConfig = resourceConfig;
+
+		loaderOptions = new LoaderOptions();
+		loaderOptions.setProcessComments(processComments);
+		loaderOptions.setCodePointLimit(codePointLimit);
+	}
+}
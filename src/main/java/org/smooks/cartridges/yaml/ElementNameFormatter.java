@@ -42,19 +42,53 @@
  */
 package org.smooks.cartridges.yaml;
 
+import org.smooks.cartridges.yaml.jfr.YamlFlightRecorder;
+
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Cleans up or replaces names mend for XML elements.
+ * <p/>
+ * The formatted names are cached, because a YAML stream normally uses the
+ * same keys over and over again. The cache is thread safe, so that a single
+ * formatter can be shared by all the readers of the same configuration. The
+ * cache is bounded: when it is full it is cleared and filled again with the
+ * keys that are used from then on.
  *
  * @author maurice_zeijen
  */
 public class ElementNameFormatter {
 
+	public static final int DEFAULT_CACHE_SIZE = 1024;
+
 	private static final Pattern ILLEGAL_ELEMENT_NAME_PATTERN = Pattern.compile("^[.]|[^a-zA-Z0-9_.-]");
 
+	/**
+	 * The characters of {@link #ILLEGAL_ELEMENT_NAME_PATTERN} that are legal in an element name.
+	 * All the characters outside this table are illegal.
+	 */
+	private static final boolean[] LEGAL_ELEMENT_NAME_CHARS = new boolean[128];
+
+	static {
+		for(char c = 'a'; c <= 'z'; c++) {
+			LEGAL_ELEMENT_NAME_CHARS[c] = true;
+		}
+		for(char c = 'A'; c <= 'Z'; c++) {
+			LEGAL_ELEMENT_NAME_CHARS[c] = true;
+		}
+		for(char c = '0'; c <= '9'; c++) {
+			LEGAL_ELEMENT_NAME_CHARS[c] = true;
+		}
+		LEGAL_ELEMENT_NAME_CHARS['_'] = true;
+		LEGAL_ELEMENT_NAME_CHARS['.'] = true;
+		LEGAL_ELEMENT_NAME_CHARS['-'] = true;
+	}
+
     private final Map<String, String> keyMap;
 
     private final String keyWhitspaceReplacement;
@@ -71,7 +105,26 @@ public class ElementNameFormatter {
 
     private final boolean doIllegalElementNameCharReplacement;
 
+    private final boolean doLiteralIllegalElementNameCharReplacement;
+
+    private final boolean doFormat;
+
+    private final int cacheSize;
+
+    private final Map<String, String> cache;
+
+    private final LongAdder cacheHits = new LongAdder();
+
+    private final LongAdder cacheMisses = new LongAdder();
+
 	public ElementNameFormatter(Map<String, String> keyMap, String keyWhitspaceReplacement, String keyPrefixOnNumeric, String illegalElementNameCharReplacement) {
+		this(keyMap, keyWhitspaceReplacement, keyPrefixOnNumeric, illegalElementNameCharReplacement, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param cacheSize The maximum number of formatted names that is cached. The cache is disabled when it is 0.
+	 */
+	public ElementNameFormatter(Map<String, String> keyMap, String keyWhitspaceReplacement, String keyPrefixOnNumeric, String illegalElementNameCharReplacement, int cacheSize) {
 		this.keyMap = keyMap;
 		this.keyWhitspaceReplacement = keyWhitspaceReplacement;
 		this.keyPrefixOnNumeric = keyPrefixOnNumeric;
@@ -81,6 +134,13 @@ public class ElementNameFormatter {
 		doKeyWhitspaceReplacement = keyWhitspaceReplacement != null;
 		doPrefixOnNumericKey = keyPrefixOnNumeric != null;
 		doIllegalElementNameCharReplacement = illegalElementNameCharReplacement != null;
+		// A replacement with group references or escapes is left to the regex, which interprets them
+		doLiteralIllegalElementNameCharReplacement = doIllegalElementNameCharReplacement
+				&& illegalElementNameCharReplacement.indexOf('$') == -1 && illegalElementNameCharReplacement.indexOf('\\') == -1;
+		doFormat = doKeyReplacement || doKeyWhitspaceReplacement || doPrefixOnNumericKey || doIllegalElementNameCharReplacement;
+
+		this.cacheSize = Math.max(cacheSize, 0);
+		cache = doFormat && this.cacheSize > 0 ? new ConcurrentHashMap<String, String>() : Collections.<String, String>emptyMap();
 	}
 
 	/**
@@ -88,6 +148,34 @@ public class ElementNameFormatter {
 	 * @return
 	 */
 	public String format(String text) {
+		if(!doFormat) {
+			// Nothing to format, so nothing to cache...
+			return text;
+		}
+		if(cacheSize == 0) {
+			return formatName(text);
+		}
+
+		String name = cache.get(text);
+		if(name != null) {
+			cacheHits.increment();
+			return name;
+		}
+		cacheMisses.increment();
+
+		Object formatEvent = YamlFlightRecorder.beginElementNameFormat();
+		name = formatName(text);
+		boolean cacheCleared = cache.size() >= cacheSize;
+		if(cacheCleared) {
+			cache.clear();
+		}
+		cache.put(text, name);
+		YamlFlightRecorder.commitElementNameFormat(formatEvent, text, name, cacheCleared);
+
+		return name;
+	}
+
+	private String formatName(String text) {
 
 		boolean replacedKey = false;
 		if(doKeyReplacement) {
@@ -110,7 +198,9 @@ public class ElementNameFormatter {
 				text = keyPrefixOnNumeric + text;
 			}
 
-			if(doIllegalElementNameCharReplacement) {
+			if(doLiteralIllegalElementNameCharReplacement) {
+				text = replaceIllegalElementNameChars(text);
+			} else if(doIllegalElementNameCharReplacement) {
 				Matcher matcher = ILLEGAL_ELEMENT_NAME_PATTERN.matcher(text);
 				text = matcher.replaceAll(illegalElementNameCharReplacement);
 			}
@@ -118,4 +208,60 @@ public class ElementNameFormatter {
 		return text;
 	}
 
+	/**
+	 * Does the same as replacing the {@link #ILLEGAL_ELEMENT_NAME_PATTERN} matches, without
+	 * the regex. A name without illegal characters is returned as is. Like the regex, a
+	 * surrogate pair is replaced as one character.
+	 */
+	private String replaceIllegalElementNameChars(String text) {
+		int length = text.length();
+
+		int i = 0;
+		while(i < length && isLegalElementNameChar(text.charAt(i), i)) {
+			i++;
+		}
+		if(i == length) {
+			return text;
+		}
+
+		StringBuilder name = new StringBuilder(length + illegalElementNameCharReplacement.length());
+		name.append(text, 0, i);
+		while(i < length) {
+			char c = text.charAt(i);
+			if(isLegalElementNameChar(c, i)) {
+				name.append(c);
+				i++;
+			} else {
+				name.append(illegalElementNameCharReplacement);
+				i += Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1)) ? 2 : 1;
+			}
+		}
+		return name.toString();
+	}
+
+	private static boolean isLegalElementNameChar(char c, int index) {
+		return c < LEGAL_ELEMENT_NAME_CHARS.length && LEGAL_ELEMENT_NAME_CHARS[c] && (index > 0 || c != '.');
+	}
+
+	/**
+	 * @return The number of names that were served from the cache
+	 */
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+
+	/**
+	 * @return The number of names that weren't in the cache and had to be formatted
+	 */
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+
+	/**
+	 * @return The number of names that are currently cached
+	 */
+	public int getCacheSize() {
+		return cache.size();
+	}
+
 }
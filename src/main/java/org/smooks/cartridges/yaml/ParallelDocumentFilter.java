@@ -0,0 +1,212 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml;
+
+import org.smooks.Smooks;
+import org.smooks.api.ExecutionContext;
+import org.smooks.api.SmooksException;
+import org.smooks.cartridges.yaml.io.YamlDocumentSplitter;
+import org.smooks.io.payload.StringSource;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Filters the documents of a multi-document YAML stream in parallel.
+ * <p/>
+ * The {@link YamlReader} emits all the documents of a stream as children of one root
+ * element in a single execution. This filter splits the stream at the document
+ * boundaries instead and filters every document in its own {@link ExecutionContext}
+ * on the threads of an {@link ExecutorService}, which can be a pool of platform
+ * threads or, on Java 21 and later, a virtual thread per task executor. The result of
+ * each document is handed to a {@link DocumentConsumer} on the calling thread, in
+ * the order of the documents in the stream.
+ * <p/>
+ * At most <code>maxDocumentsInFlight</code> documents are read ahead of the document
+ * that is handed to the consumer, so that the memory use is bounded for streams with
+ * any number of documents.
+ * <p/>
+ * The Smooks instance must be configured with a YAML reader. Each document is filtered
+ * as a stream with one document, so each result has its own root element.
+ *
+ * <h3>Usage</h3>
+ * <pre>
+ * ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+ * ParallelDocumentFilter filter = new ParallelDocumentFilter(smooks, executorService);
+ *
+ * filter.filter(reader, StringResult::new, (documentIndex, executionContext, result) -> {
+ *     // Handle the result of the document...
+ * });
+ * </pre>
+ */
+public class ParallelDocumentFilter {
+
+	public static final int DEFAULT_MAX_DOCUMENTS_IN_FLIGHT = 256;
+
+	private final Smooks smooks;
+
+	private final ExecutorService executorService;
+
+	private final int maxDocumentsInFlight;
+
+	/**
+	 * @param smooks The Smooks instance, configured with a YAML reader
+	 * @param executorService The executor that filters the documents. The executor isn't
+	 *            shut down by this filter.
+	 */
+	public ParallelDocumentFilter(Smooks smooks, ExecutorService executorService) {
+		this(smooks, executorService, DEFAULT_MAX_DOCUMENTS_IN_FLIGHT);
+	}
+
+	/**
+	 * @param smooks The Smooks instance, configured with a YAML reader
+	 * @param executorService The executor that filters the documents. The executor isn't
+	 *            shut down by this filter.
+	 * @param maxDocumentsInFlight The maximum number of documents that are read, but not
+	 *            yet handed to the consumer.
+	 */
+	public ParallelDocumentFilter(Smooks smooks, ExecutorService executorService, int maxDocumentsInFlight) {
+		if(maxDocumentsInFlight < 1) {
+			throw new IllegalArgumentException("'maxDocumentsInFlight' must be positive.");
+		}
+		this.smooks = smooks;
+		this.executorService = executorService;
+		this.maxDocumentsInFlight = maxDocumentsInFlight;
+	}
+
+	/**
+	 * Filters the documents of the YAML stream. The method returns when all the
+	 * documents are handed to the consumer. When a document fails, the documents after
+	 * it are cancelled and the failure is thrown.
+	 *
+	 * @param yamlStream The multi-document YAML stream. The reader isn't closed.
+	 * @param resultFactory Creates the result of a document
+	 * @param documentConsumer Receives the result of every document, in document order
+	 * @return The number of documents
+	 * @throws SmooksException The filtering of a document failed
+	 */
+	public <R extends Result> int filter(Reader yamlStream, Supplier<? extends R> resultFactory, DocumentConsumer<? super R> documentConsumer) throws IOException {
+		YamlDocumentSplitter splitter = new YamlDocumentSplitter(yamlStream);
+		Deque<FilteredDocument<R>> documentsInFlight = new ArrayDeque<>();
+		int documentCount = 0;
+
+		try {
+			String document;
+			while((document = splitter.nextDocument()) != null) {
+				if(documentsInFlight.size() >= maxDocumentsInFlight) {
+					consume(documentsInFlight.poll(), documentConsumer);
+				}
+				documentsInFlight.add(submit(documentCount++, document, resultFactory.get()));
+			}
+			while(!documentsInFlight.isEmpty()) {
+				consume(documentsInFlight.poll(), documentConsumer);
+			}
+		} finally {
+			for(FilteredDocument<R> filteredDocument : documentsInFlight) {
+				filteredDocument.future.cancel(true);
+			}
+		}
+
+		return documentCount;
+	}
+
+	private <R extends Result> FilteredDocument<R> submit(int documentIndex, String document, R result) {
+		Source source = new StringSource(document);
+		Future<ExecutionContext> future = executorService.submit(() -> {
+			ExecutionContext executionContext = smooks.createExecutionContext();
+			smooks.filterSource(executionContext, source, result);
+			return executionContext;
+		});
+		return new FilteredDocument<>(documentIndex, result, future);
+	}
+
+	private <R extends Result> void consume(FilteredDocument<R> filteredDocument, DocumentConsumer<? super R> documentConsumer) throws IOException {
+		ExecutionContext executionContext;
+		try {
+			executionContext = filteredDocument.future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SmooksException("Interrupted while waiting for YAML document " + filteredDocument.documentIndex + " to be filtered.", e);
+		} catch (ExecutionException e) {
+			throw new SmooksException("Failed to filter YAML document " + filteredDocument.documentIndex + ".", e.getCause());
+		}
+		documentConsumer.accept(filteredDocument.documentIndex, executionContext, filteredDocument.result);
+	}
+
+	/**
+	 * Receives the results of the documents.
+	 */
+	@FunctionalInterface
+	public interface DocumentConsumer<R extends Result> {
+
+		/**
+		 * @param documentIndex The index of the document in the stream, starting at 0
+		 * @param executionContext The execution context in which the document was filtered
+		 * @param result The result of the document
+		 */
+		void accept(int documentIndex, ExecutionContext executionContext, R result) throws IOException;
+	}
+
+	private static final class FilteredDocument<R extends Result> {
+
+		private final int documentIndex;
+
+		private final R result;
+
+		private final Future<ExecutionContext> future;
+
+		private FilteredDocument(int documentIndex, R result, Future<ExecutionContext> future) {
+			this.documentIndex = documentIndex;
+			this.result = result;
+			this.future = future;
+		}
+	}
+}
@@ -0,0 +1,489 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.smooks.api.ExecutionContext;
+import org.smooks.api.SmooksException;
+import org.smooks.cartridges.yaml.handler.*;
+import org.smooks.cartridges.yaml.io.CharsetDecodingReader;
+import org.smooks.cartridges.yaml.io.CountingReader;
+import org.smooks.cartridges.yaml.io.InputStreamDecodingReader;
+import org.smooks.cartridges.yaml.io.MappedFileDecodingReader;
+import org.smooks.cartridges.yaml.jfr.YamlFlightRecorder;
+import org.smooks.cartridges.yaml.metrics.ParseStatistics;
+import org.smooks.cartridges.yaml.metrics.TimingContentHandler;
+import org.smooks.cartridges.yaml.parser.NativeYamlParser;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * The state of a single parse of a {@link YamlReader}.
+ * <p/>
+ * The handlers, stacks and buffers of a parse are created once per context and reset
+ * after every parse, so that a pooled context parses the next message without setup
+ * allocations. A context is used by one parse at a time.
+ */
+final class ParseContext {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParseContext.class);
+
+	private final CompiledReaderConfig config;
+
+	private final YamlEventStreamHandler yamlEventStreamHandler;
+
+	private final YamlToSaxHandler yamlToSaxHandler;
+
+	private final EventHandler eventHandler;
+
+	private final SaxEventPipe saxEventPipe;
+
+	private final NativeYamlParser nativeYamlParser;
+
+	private InputStreamDecodingReader byteStreamReader;
+
+	private MappedFileDecodingReader mappedFileReader;
+
+	private InputStream systemIdStream;
+
+	/**
+	 * Only used when the statistics of the parses are published or the parse is recorded
+	 * by the flight recorder.
+	 */
+	private final CountingReader countingReader;
+
+	private final TimingContentHandler timingContentHandler;
+
+	/**
+	 * <code>null</code> if the typed values of the scalars aren't published.
+	 */
+	private final TypedScalarPublisher typedScalarPublisher;
+
+	ParseContext(CompiledReaderConfig config) {
+		this.config = config;
+
+		yamlEventStreamHandler = new YamlEventStreamHandler(config.elementNameFormatter, config.documentName, config.arrayElementName, config.nestingDepthLimit);
+		yamlEventStreamHandler.setStopCondition(config.stopCondition);
+		ScalarTypeResolver scalarTypeResolver = config.typedValues || config.typeAttributeName != null ? new ScalarTypeResolver(config.loaderOptions) : null;
+		yamlToSaxHandler = new YamlToSaxHandler(null, config.anchorAttributeName, config.aliasAttributeName, config.indent, scalarTypeResolver, config.typeAttributeName);
+		typedScalarPublisher = config.typedValues ? new TypedScalarPublisher() : null;
+
+		if(config.aliasStrategy == AliasStrategy.REFER) {
+			eventHandler = new AliasReferencingEventHandler(yamlToSaxHandler);
+		} else {
+			eventHandler = new AliasResolvingEventHandler(yamlEventStreamHandler, yamlToSaxHandler, config.aliasStrategy == AliasStrategy.REFER_RESOLVE, config.anchorMemoryBudget);
+		}
+
+		saxEventPipe = config.pipelined ? new SaxEventPipe(config.pipelineCapacity) : null;
+		nativeYamlParser = config.nativeTokenizer ? new NativeYamlParser(config.loaderOptions, config.largeScalarThreshold) : null;
+		countingReader = new CountingReader();
+		timingContentHandler = config.metrics != null ? new TimingContentHandler() : null;
+	}
+
+	/**
+	 * @return the compiled configuration that this context was built for
+	 */
+	CompiledReaderConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * @param projection The projection of the needed elements or <code>null</code> if all
+	 *            the elements are needed
+	 */
+	void parse(InputSource yamlInputSource, ContentHandler contentHandler, ExecutionContext executionContext, PathProjection projection) throws IOException, SAXException {
+		long start = config.metrics != null ? System.nanoTime() : 0;
+		Object parseEvent = YamlFlightRecorder.beginParse();
+		boolean counting = config.metrics != null || parseEvent != null;
+		Reader sourceReader = null;
+		boolean failed = true;
+		try {
+			yamlEventStreamHandler.setProjection(projection);
+			yamlEventStreamHandler.reset();
+			if(timingContentHandler != null) {
+				contentHandler = timingContentHandler.reset(contentHandler);
+			}
+			if(typedScalarPublisher != null) {
+				typedScalarPublisher.executionContext = executionContext;
+			}
+
+			// Get a reader for the YAML source...
+			sourceReader = getReader(yamlInputSource, executionContext);
+			Reader yamlStreamReader = counting ? countingReader.reset(sourceReader) : sourceReader;
+
+			if(LOGGER.isTraceEnabled()) {
+				LOGGER.trace("Starting YAML parsing");
+			}
+
+			// Start the document and add the root  element...
+			contentHandler.startDocument();
+
+			// In pipelined mode the handlers run on a pipeline thread and write to the pipe. When
+			// all the pipeline threads are taken the stream is parsed on this thread.
+			if(saxEventPipe != null && config.pipelineExecutor.tryReserve()) {
+				saxEventPipe.reset();
+				yamlToSaxHandler.reset(saxEventPipe.getProducerHandler(), typedScalarPublisher != null ? saxEventPipe.getProducerTypedScalarHandler() : null);
+				parsePipelined(contentHandler, yamlStreamReader);
+			} else {
+				yamlToSaxHandler.reset(contentHandler, typedScalarPublisher);
+				handleEventStream(yamlStreamReader);
+			}
+
+			contentHandler.endDocument();
+
+			failed = false;
+		} finally {
+			try {
+				if(config.metrics != null) {
+					publishStatistics(System.nanoTime() - start, sourceReader, failed);
+				}
+				if(parseEvent != null) {
+					commitParseEvent(parseEvent, yamlInputSource, sourceReader, failed);
+				}
+				if(eventHandler instanceof Closeable) {
+					((Closeable) eventHandler).close();
+				}
+			} finally {
+				closeSystemIdStreams();
+				if(byteStreamReader != null) {
+					byteStreamReader.release();
+				}
+				yamlToSaxHandler.reset(null);
+				if(counting) {
+					countingReader.release();
+				}
+				if(timingContentHandler != null) {
+					timingContentHandler.reset(null);
+				}
+				if(typedScalarPublisher != null) {
+					executionContext.remove(YamlReader.TYPED_SCALAR);
+					typedScalarPublisher.executionContext = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Hands the statistics of the parse to the metrics. A failure of the metrics is
+	 * logged, so that it doesn't hide the outcome of the parse.
+	 */
+	private void publishStatistics(long totalNanos, Reader sourceReader, boolean failed) {
+		long[] eventCounts = new long[Event.ID.values().length];
+		for(Event.ID id : Event.ID.values()) {
+			eventCounts[id.ordinal()] = yamlEventStreamHandler.getEventCount(id);
+		}
+		long anchorCount = 0;
+		long aliasExpansionCount = 0;
+		if(eventHandler instanceof AliasResolvingEventHandler) {
+			anchorCount = ((AliasResolvingEventHandler) eventHandler).getAnchorCount();
+			aliasExpansionCount = ((AliasResolvingEventHandler) eventHandler).getAliasExpansionCount();
+		}
+
+		ParseStatistics statistics = new ParseStatistics(config.resourceConfig, failed, getBytesRead(sourceReader),
+				countingReader.getCharsRead(), eventCounts, yamlToSaxHandler.getElementCount(), yamlEventStreamHandler.getMaxDepth(),
+				anchorCount, aliasExpansionCount, totalNanos, timingContentHandler.getNanos());
+		try {
+			config.metrics.parsed(statistics);
+		} catch (RuntimeException e) {
+			LOGGER.warn("The YAML reader metrics failed to handle the statistics of a parse", e);
+		}
+	}
+
+	/**
+	 * Completes the flight recorder event of the parse with the same counts as the statistics.
+	 */
+	private void commitParseEvent(Object parseEvent, InputSource yamlInputSource, Reader sourceReader, boolean failed) {
+		long eventCount = 0;
+		for(Event.ID id : Event.ID.values()) {
+			eventCount += yamlEventStreamHandler.getEventCount(id);
+		}
+		YamlFlightRecorder.commitParse(parseEvent, yamlInputSource.getSystemId(), getBytesRead(sourceReader), countingReader.getCharsRead(),
+				yamlEventStreamHandler.getEventCount(Event.ID.DocumentStart), eventCount, failed);
+	}
+
+	private long getBytesRead(Reader sourceReader) {
+		return sourceReader instanceof CharsetDecodingReader ? ((CharsetDecodingReader) sourceReader).getBytesRead() : -1;
+	}
+
+	/**
+	 * Returns the events of the YAML stream. The parser is created directly from the
+	 * loader options, because a SnakeYAML Yaml instance isn't thread safe.
+	 */
+	private Iterable<Event> parseEvents(Reader yamlStreamReader) {
+		final Parser parser = new ParserImpl(new StreamReader(yamlStreamReader), config.loaderOptions);
+		return () -> new Iterator<Event>() {
+			@Override
+			public boolean hasNext() {
+				return parser.peekEvent() != null;
+			}
+
+			@Override
+			public Event next() {
+				Event event = parser.getEvent();
+				if(event == null) {
+					throw new NoSuchElementException("No more YAML events");
+				}
+				return event;
+			}
+		};
+	}
+
+	private void handleEventStream(Reader yamlStreamReader) throws IOException, SAXException {
+		yamlToSaxHandler.startElementStructure(config.rootName, null, false);
+
+		try {
+			if(nativeYamlParser != null) {
+				YamlEventStreamHandler.Dispatcher dispatcher = yamlEventStreamHandler.open(eventHandler);
+				try {
+					nativeYamlParser.parse(yamlStreamReader, dispatcher);
+				} finally {
+					dispatcher.close();
+				}
+			} else {
+				yamlEventStreamHandler.handle(eventHandler, parseEvents(yamlStreamReader));
+			}
+		} catch (ParseStoppedException e) {
+			// The rest of the YAML stream isn't needed, only the open elements are ended
+			if(LOGGER.isDebugEnabled()) {
+				LOGGER.debug("Stopped reading the YAML stream, because the stop condition is met");
+			}
+			yamlToSaxHandler.endElementStructures(1);
+		}
+
+		yamlToSaxHandler.endElementStructure(config.rootName);
+	}
+
+	/**
+	 * Parses the YAML stream, formats the element names and resolves the aliases on a
+	 * pipeline thread, while this thread replays the resulting SAX events into the
+	 * content handler. This method only returns after the pipeline thread is done, so
+	 * that the state of the context is never used by two threads at the same time. A
+	 * thread of the pipeline executor must be reserved.
+	 */
+	private void parsePipelined(ContentHandler contentHandler, Reader yamlStreamReader) throws IOException, SAXException {
+		final SaxEventPipe pipe = saxEventPipe;
+		Future<?> producer = config.pipelineExecutor.submit(() -> {
+			try {
+				handleEventStream(yamlStreamReader);
+				pipe.end();
+			} catch (Throwable t) {
+				pipe.fail(t);
+			}
+		});
+
+		try {
+			pipe.replay(contentHandler, typedScalarPublisher);
+		} finally {
+			pipe.cancel();
+			awaitUninterruptibly(producer);
+		}
+	}
+
+	private static void awaitUninterruptibly(Future<?> future) {
+		boolean interrupted = false;
+		try {
+			while(true) {
+				try {
+					future.get();
+					return;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					// The producer hands its failures to the pipe
+					return;
+				}
+			}
+		} finally {
+			if(interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Returns the reader for the YAML stream. A byte stream is decoded directly, with
+	 * the encoding detected from the stream, unless a character stream is supplied too.
+	 * The character stream has precedence, as SAX requires, unless the reader is
+	 * configured to prefer the byte stream. If the InputSource only has a system id
+	 * then the file or URL of the system id is read.
+	 */
+	private Reader getReader(InputSource yamlInputSource, ExecutionContext executionContext) throws IOException {
+		Reader characterStream = yamlInputSource.getCharacterStream();
+		InputStream byteStream = yamlInputSource.getByteStream();
+
+		if(characterStream == null && byteStream == null && yamlInputSource.getSystemId() != null) {
+			return openSystemId(yamlInputSource, executionContext);
+		}
+
+		if(byteStream != null && (characterStream == null || config.preferByteStream)) {
+			if(byteStreamReader == null) {
+				byteStreamReader = new InputStreamDecodingReader(config.readerBufferSize);
+			}
+			return byteStreamReader.reset(byteStream, getDefaultCharset(yamlInputSource, characterStream, executionContext));
+		}
+		if(characterStream == null) {
+			throw new SmooksException("The InputSource doesn't provide a Reader character stream or an InputStream byte stream. Make sure that you supply a reader or a stream to the Smooks.filterSource method.");
+		}
+		return characterStream;
+	}
+
+	/**
+	 * Opens the system id of the InputSource. A file is memory mapped, so that it is
+	 * decoded without being copied to the heap first. Any other URL is read as a
+	 * byte stream.
+	 */
+	private Reader openSystemId(InputSource yamlInputSource, ExecutionContext executionContext) throws IOException {
+		String systemId = yamlInputSource.getSystemId();
+		Charset defaultCharset = getDefaultCharset(yamlInputSource, null, executionContext);
+
+		Path file = toFile(systemId);
+		if(file != null) {
+			if(LOGGER.isDebugEnabled()) {
+				LOGGER.debug("Memory mapping YAML file '" + file + "'");
+			}
+			if(mappedFileReader == null) {
+				mappedFileReader = new MappedFileDecodingReader(MappedFileDecodingReader.DEFAULT_WINDOW_SIZE, config.readerBufferSize);
+			}
+			return mappedFileReader.open(file, defaultCharset);
+		}
+
+		if(byteStreamReader == null) {
+			byteStreamReader = new InputStreamDecodingReader(config.readerBufferSize);
+		}
+		systemIdStream = new URL(systemId).openStream();
+		return byteStreamReader.reset(systemIdStream, defaultCharset);
+	}
+
+	/**
+	 * @return The path of the system id or <code>null</code> if the system id isn't a file.
+	 */
+	private Path toFile(String systemId) {
+		URI uri;
+		try {
+			uri = new URI(systemId);
+		} catch (URISyntaxException e) {
+			// Not a URI, for instance a Windows path...
+			return Paths.get(systemId);
+		}
+		if(uri.getScheme() == null || uri.getScheme().length() == 1) {
+			// A relative path or a path with a Windows drive letter...
+			return Paths.get(systemId);
+		}
+		if("file".equalsIgnoreCase(uri.getScheme())) {
+			return Paths.get(uri);
+		}
+		return null;
+	}
+
+	private void closeSystemIdStreams() throws IOException {
+		try {
+			if(mappedFileReader != null) {
+				mappedFileReader.close();
+			}
+		} finally {
+			if(systemIdStream != null) {
+				try {
+					systemIdStream.close();
+				} finally {
+					systemIdStream = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The charset of a byte stream without a byte order mark. That is the encoding of
+	 * the InputSource, the encoding of the supplied character stream or the content
+	 * encoding of the execution context, in that order.
+	 */
+	private Charset getDefaultCharset(InputSource yamlInputSource, Reader characterStream, ExecutionContext executionContext) {
+		String encoding = yamlInputSource.getEncoding();
+		if(encoding == null && characterStream instanceof InputStreamReader) {
+			encoding = ((InputStreamReader) characterStream).getEncoding();
+		}
+		if(encoding == null) {
+			encoding = executionContext.getContentEncoding();
+		}
+		return encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+	}
+
+	/**
+	 * Puts the typed scalars in the execution context of the parse.
+	 */
+	private static final class TypedScalarPublisher implements TypedScalarHandler {
+
+		private ExecutionContext executionContext;
+
+		@Override
+		public void typedScalar(TypedScalar typedScalar) {
+			if(typedScalar != null) {
+				executionContext.put(YamlReader.TYPED_SCALAR, typedScalar);
+			} else {
+				executionContext.remove(YamlReader.TYPED_SCALAR);
+			}
+		}
+	}
+}
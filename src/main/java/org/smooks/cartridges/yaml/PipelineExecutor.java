@@ -0,0 +1,119 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The daemon threads that parse the YAML streams of the pipelined readers of a Smooks
+ * instance. The executor is registered once in the registry of the Smooks instance and
+ * shut down when the Smooks instance is closed.
+ * <p/>
+ * The number of threads is bounded. A parse first reserves a thread with
+ * {@link #tryReserve()} and is parsed on the thread of the execution, without a
+ * pipeline, when all the threads are taken. The idle threads end after a minute.
+ */
+public final class PipelineExecutor {
+
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private final Semaphore reservations;
+
+	private final ThreadPoolExecutor executor;
+
+	private volatile boolean shutdown;
+
+	PipelineExecutor(int maxThreads) {
+		reservations = new Semaphore(maxThreads);
+		executor = new ThreadPoolExecutor(maxThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "smooks-yaml-pipeline-" + THREAD_COUNT.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * @return if a thread is reserved for the next {@link #submit(Runnable)}
+	 */
+	boolean tryReserve() {
+		return !shutdown && reservations.tryAcquire();
+	}
+
+	/**
+	 * Runs the task on the reserved thread. The reservation ends with the task.
+	 */
+	Future<?> submit(Runnable task) {
+		try {
+			return executor.submit(() -> {
+				try {
+					task.run();
+				} finally {
+					reservations.release();
+				}
+			});
+		} catch (RuntimeException e) {
+			reservations.release();
+			throw e;
+		}
+	}
+
+	boolean isShutdown() {
+		return shutdown;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		shutdown = true;
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,217 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.smooks.api.delivery.ContentDeliveryConfig;
+import org.smooks.api.delivery.ContentHandlerBinding;
+import org.smooks.api.resource.config.ResourceConfig;
+import org.smooks.cartridges.yaml.handler.PathProjection;
+import org.smooks.engine.delivery.ContentHandlerBindingIndex;
+import org.smooks.engine.delivery.sax.ng.SaxNgContentDeliveryConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Derives the projection of a {@link YamlReader} from the selectors of the visitors
+ * of a content delivery configuration.
+ * <p/>
+ * An element that is selected by a visitor is needed with all its descendants, because
+ * the visitor may read them. Selectors that can match any element, like <code>*</code>,
+ * and selectors that aren't understood, like selectors with functions or a namespace
+ * prefix, need all the elements, so then there is no projection. Conditions on the
+ * steps are ignored, which only makes the projection produce more elements than needed.
+ */
+final class SelectorProjection {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SelectorProjection.class);
+
+	/**
+	 * The projection path of a selector that needs all the elements.
+	 */
+	static final String ALL_ELEMENTS = "/**";
+
+	private static final Pattern PREDICATE = Pattern.compile("\\[[^\\]]*\\]");
+
+	private static final Pattern SIMPLE_SELECTOR = Pattern.compile("[A-Za-z0-9_.\\-*/]*");
+
+	private SelectorProjection() {
+	}
+
+	/**
+	 * @return The projection or <code>null</code> if all the elements are needed
+	 */
+	static PathProjection derive(ContentDeliveryConfig contentDeliveryConfig, String rootName) {
+		if(!(contentDeliveryConfig instanceof SaxNgContentDeliveryConfig)) {
+			LOGGER.debug("Not projecting the YAML elements, because the visitors of '{}' can't be inspected", contentDeliveryConfig);
+			return null;
+		}
+
+		SaxNgContentDeliveryConfig saxNgContentDeliveryConfig = (SaxNgContentDeliveryConfig) contentDeliveryConfig;
+		Set<String> paths = new LinkedHashSet<>();
+		for(ContentHandlerBindingIndex<?> index : Arrays.asList(saxNgContentDeliveryConfig.getBeforeVisitorIndex(),
+				saxNgContentDeliveryConfig.getChildVisitorIndex(), saxNgContentDeliveryConfig.getAfterVisitorIndex())) {
+			for(List<? extends ContentHandlerBinding<?>> bindings : index.values()) {
+				for(ContentHandlerBinding<?> binding : bindings) {
+					ResourceConfig resourceConfig = binding.getResourceConfig();
+					if(resourceConfig.isSystem() || resourceConfig.getSelectorPath() == null) {
+						continue;
+					}
+
+					String selector = resourceConfig.getSelectorPath().getSelector();
+					List<String> selectorPaths = toProjectionPaths(selector, rootName);
+					if(selectorPaths.contains(ALL_ELEMENTS)) {
+						LOGGER.debug("Not projecting the YAML elements, because the selector '{}' can select any element", selector);
+						return null;
+					}
+					paths.addAll(selectorPaths);
+				}
+			}
+		}
+
+		if(paths.isEmpty()) {
+			LOGGER.debug("Not projecting the YAML elements, because no visitor selects them");
+			return null;
+		}
+
+		LOGGER.debug("Projecting the YAML elements on the paths {}", paths);
+		return PathProjection.compile(paths);
+	}
+
+	/**
+	 * Translates a selector to the projection paths of the elements that it can select.
+	 *
+	 * @return The paths, {@link #ALL_ELEMENTS} if the selector can select any element or
+	 *         an empty list if it can't select any element of the YAML reader
+	 */
+	static List<String> toProjectionPaths(String selector, String rootName) {
+		List<String> paths = new ArrayList<>();
+		for(String alternative : PREDICATE.matcher(selector).replaceAll("").split("[|,]")) {
+			paths.addAll(toAlternativeProjectionPaths(alternative.trim(), rootName));
+		}
+		return paths;
+	}
+
+	private static List<String> toAlternativeProjectionPaths(String selector, String rootName) {
+		String path = selector;
+
+		boolean absolute = false;
+		if(path.startsWith(ResourceConfig.DOCUMENT_FRAGMENT_SELECTOR)) {
+			path = path.substring(ResourceConfig.DOCUMENT_FRAGMENT_SELECTOR.length());
+			absolute = true;
+		}
+		if(path.startsWith("//")) {
+			path = path.substring(2);
+			absolute = false;
+		} else if(path.startsWith("/")) {
+			path = path.substring(1);
+			absolute = true;
+		}
+
+		// The attributes and text of an element are selected through the element
+		List<String> steps = new ArrayList<>(Arrays.asList(path.split("/", -1)));
+		String lastStep = steps.get(steps.size() - 1);
+		if(lastStep.startsWith("@") || lastStep.equals("text()")) {
+			steps.remove(steps.size() - 1);
+		}
+
+		if(steps.isEmpty() || (steps.size() == 1 && steps.get(0).isEmpty())) {
+			// The document fragment or the root element
+			return Collections.singletonList(ALL_ELEMENTS);
+		}
+		for(int i = 0; i < steps.size(); i++) {
+			String step = steps.get(i);
+			if(step.isEmpty()) {
+				// A '//' selects any number of elements
+				steps.set(i, "**");
+			} else if(step.equals(".") || step.equals("..") || !SIMPLE_SELECTOR.matcher(step).matches()
+					|| (step.indexOf('*') >= 0 && !step.equals("*"))) {
+				return Collections.singletonList(ALL_ELEMENTS);
+			}
+		}
+
+		List<String> paths = new ArrayList<>();
+		String firstStep = steps.get(0);
+		if(firstStep.equals(rootName) || firstStep.equals("*")) {
+			if(steps.size() == 1) {
+				// The root element or any element
+				return Collections.singletonList(ALL_ELEMENTS);
+			}
+			// The selector starts at the root element, which isn't part of the projection paths
+			paths.add(toPath(steps.subList(1, steps.size())));
+			if(absolute && firstStep.equals("*") && steps.get(1).equals(rootName)) {
+				// Smooks turns the #document token into a leading '/*' step
+				if(steps.size() == 2) {
+					return Collections.singletonList(ALL_ELEMENTS);
+				}
+				paths.add(toPath(steps.subList(2, steps.size())));
+			}
+		} else if(absolute && !firstStep.equals("**")) {
+			// An absolute selector of an other root element
+			return paths;
+		}
+		if(!absolute || firstStep.equals("**")) {
+			List<String> relativeSteps = new ArrayList<>(steps);
+			if(!firstStep.equals("**")) {
+				relativeSteps.add(0, "**");
+			}
+			paths.add(toPath(relativeSteps));
+		}
+		return paths;
+	}
+
+	private static String toPath(List<String> steps) {
+		StringBuilder path = new StringBuilder();
+		for(String step : steps) {
+			path.append('/').append(step);
+		}
+		return path.toString();
+	}
+}
@@ -0,0 +1,100 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml;
+
+/**
+ * The typed value of a YAML scalar, as SnakeYAML resolves and constructs it.
+ * <p/>
+ * When the reader is configured with <code>typedValues</code> it puts the typed scalar
+ * of a scalar element in the execution context under {@link YamlReader#TYPED_SCALAR},
+ * just before the element is started. During the visits of a scalar element the execution
+ * context holds the typed scalar of that element, so that a visitor or decoder can use the
+ * value instead of parsing the text of the element again.
+ */
+public final class TypedScalar {
+
+	private final String elementName;
+
+	private final String type;
+
+	private final Object value;
+
+	public TypedScalar(String elementName, String type, Object value) {
+		this.elementName = elementName;
+		this.type = type;
+		this.value = value;
+	}
+
+	/**
+	 * @return The name of the element of the scalar
+	 */
+	public String getElementName() {
+		return elementName;
+	}
+
+	/**
+	 * @return The type of the scalar. That is the name of the YAML type, like <code>int</code>,
+	 * 		<code>float</code>, <code>bool</code>, <code>null</code>, <code>timestamp</code>,
+	 * 		<code>binary</code> or <code>str</code>, or the tag of the scalar if it has a
+	 * 		tag of another type.
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * @return The value of the scalar: an {@link Integer}, {@link Long} or {@link java.math.BigInteger}
+	 * 		for an <code>int</code>, a {@link Double} for a <code>float</code>, a {@link Boolean}
+	 * 		for a <code>bool</code>, <code>null</code> for a <code>null</code>, a {@link java.util.Date}
+	 * 		for a <code>timestamp</code>, a <code>byte[]</code> for a <code>binary</code> and
+	 * 		the {@link String} for all the other types.
+	 */
+	public Object getValue() {
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return elementName + ": " + value + " (" + type + ")";
+	}
+}
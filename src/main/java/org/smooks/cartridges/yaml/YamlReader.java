@@ -45,24 +45,34 @@ package org.smooks.cartridges.yaml;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.smooks.api.ExecutionContext;
+import org.smooks.api.Registry;
+import org.smooks.api.SmooksConfigException;
 import org.smooks.api.SmooksException;
+import org.smooks.api.TypedKey;
+import org.smooks.api.delivery.ContentDeliveryConfig;
 import org.smooks.api.resource.config.Parameter;
 import org.smooks.api.resource.config.ResourceConfig;
 import org.smooks.api.resource.reader.SmooksXMLReader;
-import org.smooks.cartridges.yaml.handler.*;
+import org.smooks.cartridges.yaml.handler.PathProjection;
+import org.smooks.cartridges.yaml.handler.SaxEventPipe;
+import org.smooks.cartridges.yaml.handler.StopCondition;
+import org.smooks.cartridges.yaml.io.InputStreamDecodingReader;
+import org.smooks.cartridges.yaml.metrics.JmxReaderMetrics;
+import org.smooks.cartridges.yaml.metrics.ReaderMetrics;
 import org.w3c.dom.Element;
 import org.xml.sax.*;
-import org.yaml.snakeyaml.Yaml;
-import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.LoaderOptions;
 
 import jakarta.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.io.IOException;
-import java.io.Reader;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * YAML to SAX event reader.
@@ -128,6 +138,95 @@ import java.util.Optional;
  *      (Optional) The name of the alias attribute when the aliasStrategy is REFER or REFER_RESOLVER. Default of 'ref'
  *  --&gt;
  *  &lt;param name="<b>aliasAttributeName</b>"&gt;<i>&lt;alias-attribute-name&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) The maximum number of formatted element names that are cached. The cache is shared by all the readers of this configuration. Set to 0 to disable the cache. Default of '1024'
+ *  --&gt;
+ *  &lt;param name="<b>elementNameCacheSize</b>"&gt;<i>&lt;element-name-cache-size&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) The estimated number of bytes that the events of the anchors may use, per execution, when the aliasStrategy is RESOLVE or REFER_RESOLVE.
+ *      When the anchors need more then their events are written to a temporary file. By default this is unlimited.
+ *  --&gt;
+ *  &lt;param name="<b>anchorMemoryBudget</b>"&gt;<i>&lt;anchor-memory-budget&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) The size, in bytes and chars, of the buffers that decode a byte stream or a memory mapped file. Default of '65536'
+ *  --&gt;
+ *  &lt;param name="<b>readerBufferSize</b>"&gt;<i>&lt;reader-buffer-size&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) If the byte stream of the InputSource is decoded by the reader when the InputSource also has a
+ *      character stream. Only set this when the character stream is an unread InputStreamReader over the same byte
+ *      stream, like in the InputSource that Smooks creates for a StreamSource with an InputStream. Default of 'false'
+ *  --&gt;
+ *  &lt;param name="<b>preferByteStream</b>"&gt;<i>&lt;prefer-byte-stream&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) If the YAML parser processes the comments of the YAML stream. Comments don't result in SAX events,
+ *      so this only makes the parser do more work. Default of 'false'
+ *  --&gt;
+ *  &lt;param name="<b>processComments</b>"&gt;<i>&lt;process-comments&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) The maximum number of code points that a YAML document may have. Default of '3145728'
+ *  --&gt;
+ *  &lt;param name="<b>codePointLimit</b>"&gt;<i>&lt;code-point-limit&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) The maximum depth of nested mappings and sequences, including the structures that are resolved from
+ *      anchors. By default this is unlimited.
+ *  --&gt;
+ *  &lt;param name="<b>nestingDepthLimit</b>"&gt;<i>&lt;nesting-depth-limit&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) If the YAML stream is parsed on a separate thread, so that parsing overlaps with the handling of the
+ *      SAX events by Smooks. Default of 'false'
+ *  --&gt;
+ *  &lt;param name="<b>pipelined</b>"&gt;<i>&lt;pipelined&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) The number of SAX events that the parsing thread can be ahead when pipelined is true. Default of '1024'
+ *  --&gt;
+ *  &lt;param name="<b>pipelineCapacity</b>"&gt;<i>&lt;pipeline-capacity&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) If the documents in the common subset of YAML are parsed by the native parser of the reader instead of
+ *      SnakeYAML. Default of 'false'
+ *  --&gt;
+ *  &lt;param name="<b>nativeTokenizer</b>"&gt;<i>&lt;native-tokenizer&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) The comma separated paths of the elements that are needed, starting at the document element, like
+ *      '/document/spec/containers/&#42;/image'. The subtrees of the other elements are skipped. By default all the
+ *      elements are produced.
+ *  --&gt;
+ *  &lt;param name="<b>projectionPaths</b>"&gt;<i>&lt;projection-paths&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) If the projection paths are derived from the selectors of the visitors, when no projection paths are
+ *      configured. Default of 'false'
+ *  --&gt;
+ *  &lt;param name="<b>autoProjection</b>"&gt;<i>&lt;auto-projection&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) The comma separated paths of the elements after which the reader stops reading the YAML stream, once
+ *      an element of every path is produced. The open elements are ended. By default the whole stream is read.
+ *  --&gt;
+ *  &lt;param name="<b>stopAfterPaths</b>"&gt;<i>&lt;stop-after-paths&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) The number of YAML documents after which the reader stops reading the YAML stream. By default the
+ *      whole stream is read.
+ *  --&gt;
+ *  &lt;param name="<b>stopAfterDocuments</b>"&gt;<i>&lt;stop-after-documents&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) If the statistics of the parses are published, by default through a JMX MBean per reader
+ *      configuration. Default of 'false'
+ *  --&gt;
+ *  &lt;param name="<b>metrics</b>"&gt;<i>&lt;metrics&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) The name of the attribute with the YAML type of a scalar element, like 'int' or 'str'. By default
+ *      the scalar elements don't get a type attribute.
+ *  --&gt;
+ *  &lt;param name="<b>typeAttributeName</b>"&gt;<i>&lt;type-attribute-name&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) If the typed value of a scalar element is put in the execution context under
+ *      {@link #TYPED_SCALAR}. Default of 'false'
+ *  --&gt;
+ *  &lt;param name="<b>typedValues</b>"&gt;<i>&lt;typed-values&gt;</i>&lt;/param&gt;
+ *  &lt;!--
+ *      (Optional) The number of characters from which the literal and folded scalars are written to the content handler
+ *      in chunks, straight from the text of the document, instead of as one string. Requires nativeTokenizer. By
+ *      default the scalars are always produced as one string.
+ *  --&gt;
+ *  &lt;param name="<b>largeScalarThreshold</b>"&gt;<i>&lt;large-scalar-threshold&gt;</i>&lt;/param&gt;
  * &lt;/resource-config&gt;
  * </pre>
  *
@@ -149,6 +248,14 @@ public class YamlReader implements SmooksXMLReader {
 
     public static final String DEFAULT_ALIAS_NAME = "ref";
 
+    public static final int DEFAULT_CODE_POINT_LIMIT = new LoaderOptions().getCodePointLimit();
+
+    /**
+     * The key of the {@link TypedScalar} of the current scalar element in the execution context,
+     * when the reader is configured with <code>typedValues</code>.
+     */
+    public static final TypedKey<TypedScalar> TYPED_SCALAR = TypedKey.of(YamlReader.class.getName() + "#TYPED_SCALAR");
+
     private ContentHandler contentHandler;
 
 	private ExecutionContext executionContext;
@@ -183,18 +290,109 @@ public class YamlReader implements SmooksXMLReader {
     @Inject
     private AliasStrategy aliasStrategy = AliasStrategy.REFER;
 
+    @Inject
+    private Integer elementNameCacheSize = ElementNameFormatter.DEFAULT_CACHE_SIZE;
+
+    @Inject
+    private Long anchorMemoryBudget = Long.MAX_VALUE;
+
+    @Inject
+    private Integer readerBufferSize = InputStreamDecodingReader.DEFAULT_BUFFER_SIZE;
+
+    @Inject
+    private Boolean preferByteStream = false;
+
+    @Inject
+    private Boolean processComments = false;
+
+    @Inject
+    private Integer codePointLimit = DEFAULT_CODE_POINT_LIMIT;
+
+    @Inject
+    private Integer nestingDepthLimit = Integer.MAX_VALUE;
+
+    @Inject
+    private Boolean pipelined = false;
+
+    @Inject
+    private Integer pipelineCapacity = SaxEventPipe.DEFAULT_CAPACITY;
+
+    @Inject
+    private Boolean nativeTokenizer = false;
+
+    @Inject
+    private Optional<String> projectionPaths = Optional.empty();
+
+    @Inject
+    private Boolean autoProjection = false;
+
+    @Inject
+    private Optional<String> stopAfterPaths = Optional.empty();
+
+    @Inject
+    private Integer stopAfterDocuments = Integer.MAX_VALUE;
+
+    @Inject
+    private Boolean metrics = false;
+
+    @Inject
+    private Optional<String> typeAttributeName = Optional.empty();
+
+    @Inject
+    private Boolean typedValues = false;
+
+    @Inject
+    private Integer largeScalarThreshold = Integer.MAX_VALUE;
+
     @Inject
     private ResourceConfig resourceConfig;
 
-    private final Yaml yaml = new Yaml();
+    @Inject
+    private Registry registry;
+
+	private ElementNameFormatter elementNameFormatter;
+
+	private PathProjection projection;
+
+	private StopCondition stopCondition;
+
+	private ReaderMetrics readerMetrics;
+
+	private PipelineExecutor pipelineExecutor;
+
+	/**
+	 * The projection that was derived for the last content delivery configuration.
+	 */
+	private volatile DerivedProjection derivedProjection;
+
+	/**
+	 * The configuration as it is used by the parses. It is compiled on first use and
+	 * compiled again after a setter changed the configuration.
+	 */
+	private volatile CompiledReaderConfig compiledConfig;
 
-	private YamlEventStreamHandler yamlEventStreamParser;
+	/**
+	 * The parse contexts that are free to use. A context is taken from the pool for the
+	 * duration of a parse, so that concurrent parses each have their own context.
+	 */
+	private final BlockingQueue<ParseContext> parseContextPool = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
 
     @PostConstruct
     public void initialize() {
-    	ElementNameFormatter elementNameFormatter = new ElementNameFormatter(initKeyMap(), keyWhitspaceReplacement.orElse(null), keyPrefixOnNumeric.orElse(null), illegalElementNameCharReplacement.orElse(null));
-    	yamlEventStreamParser = new YamlEventStreamHandler(elementNameFormatter, documentName, arrayElementName);
+    	elementNameFormatter = lookupElementNameFormatter();
+    	projection = projectionPaths.map(YamlReader::compileProjection).orElse(null);
+    	stopCondition = compileStopCondition(stopAfterPaths, stopAfterDocuments);
+    	readerMetrics = metrics ? lookupReaderMetrics() : null;
+    	pipelineExecutor = pipelined ? lookupPipelineExecutor() : null;
+    	if(largeScalarThreshold < 1) {
+    		throw new SmooksConfigException("Invalid 'largeScalarThreshold' parameter: must be positive.");
+    	}
+    	if(largeScalarThreshold != Integer.MAX_VALUE && !nativeTokenizer) {
+    		throw new SmooksConfigException("The 'largeScalarThreshold' parameter requires the 'nativeTokenizer' parameter to be 'true'.");
+    	}
+    	compiledConfig = null;
     }
+
     /*
      * (non-Javadoc)
      * @see org.smooks.xml.SmooksXMLReader#setExecutionContext(org.smooks.container.ExecutionContext)
@@ -208,6 +406,24 @@ public class YamlReader implements SmooksXMLReader {
 	 * @see org.xml.sax.XMLReader#parse(org.xml.sax.InputSource)
 	 */
 	public void parse(InputSource yamlInputSource) throws IOException, SAXException {
+        try {
+        	parse(yamlInputSource, contentHandler, executionContext);
+        } finally {
+        	contentHandler = null;
+        	executionContext = null;
+        }
+	}
+
+	/**
+	 * Parses the YAML stream into the content handler. Unlike {@link #parse(InputSource)}
+	 * this method doesn't use the content handler and execution context that are set
+	 * on the reader, so one reader can parse for concurrent executions.
+	 *
+	 * @param yamlInputSource The YAML stream
+	 * @param contentHandler The handler of the SAX events
+	 * @param executionContext The execution context of the parse
+	 */
+	public void parse(InputSource yamlInputSource, ContentHandler contentHandler, ExecutionContext executionContext) throws IOException, SAXException {
         if(contentHandler == null) {
             throw new IllegalStateException("'contentHandler' not set.  Cannot parse YAML stream.");
         }
@@ -215,45 +431,149 @@ public class YamlReader implements SmooksXMLReader {
             throw new IllegalStateException("Smooks container 'executionContext' not set.  Cannot parse YAML stream.");
         }
 
+        ParseContext parseContext = acquireParseContext();
         try {
-			// Get a reader for the YAML source...
-	        Reader yamlStreamReader = yamlInputSource.getCharacterStream();
-	        if(yamlStreamReader == null) {
-	            throw new SmooksException("The InputSource doesn't provide a Reader character stream. Make sure that you supply a reader to the Smooks.filterSource method.");
-	        }
-	        YamlToSaxHandler yamlToSaxHandler = new YamlToSaxHandler(contentHandler, anchorAttributeName, aliasAttributeName, indent);
-
-	        EventHandler eventHandler;
-	        if(aliasStrategy == AliasStrategy.REFER) {
-	        	eventHandler = new AliasReferencingEventHandler(yamlToSaxHandler);
-	        } else {
-	        	eventHandler = new AliasResolvingEventHandler(yamlEventStreamParser, yamlToSaxHandler, aliasStrategy == AliasStrategy.REFER_RESOLVE);
-	        }
-
-	        if(LOGGER.isTraceEnabled()) {
-	        	LOGGER.trace("Starting YAML parsing");
-	        }
-
-	        Iterable<Event> yamlEventStream = yaml.parse(yamlStreamReader);
+        	parseContext.parse(yamlInputSource, contentHandler, executionContext, getProjection(parseContext.getConfig(), executionContext));
+        } finally {
+        	parseContextPool.offer(parseContext);
+        }
+	}
 
-	        // Start the document and add the root  element...
-	        contentHandler.startDocument();
+	/**
+	 * Takes a parse context of the current configuration from the pool, or creates one
+	 * when the pool is empty. Contexts of an older configuration are dropped.
+	 */
+	private ParseContext acquireParseContext() {
+		CompiledReaderConfig config = getCompiledConfig();
+
+		ParseContext parseContext;
+		while((parseContext = parseContextPool.poll()) != null) {
+			if(parseContext.getConfig() == config) {
+				return parseContext;
+			}
+		}
+		return new ParseContext(config);
+	}
 
-	        yamlToSaxHandler.startElementStructure(rootName, null, false);
+	private CompiledReaderConfig getCompiledConfig() {
+		CompiledReaderConfig config = compiledConfig;
+		if(config == null) {
+			config = new CompiledReaderConfig(elementNameFormatter, rootName, documentName, arrayElementName,
+					anchorAttributeName, aliasAttributeName, indent, aliasStrategy, anchorMemoryBudget, readerBufferSize,
+					preferByteStream, processComments, codePointLimit, nestingDepthLimit, pipelined, pipelineCapacity, pipelineExecutor, nativeTokenizer, projection, autoProjection, stopCondition,
+					readerMetrics, typeAttributeName.orElse(null), typedValues, largeScalarThreshold, resourceConfig);
+			compiledConfig = config;
+		}
+		return config;
+	}
 
-	        yamlEventStreamParser.handle(eventHandler, yamlEventStream);
+	/**
+	 * Returns the configured projection or, with auto projection, the projection that is
+	 * derived from the visitors of the content delivery configuration of the execution.
+	 * The visitors that are added to Smooks programmatically are only known to the content
+	 * delivery configuration, so the projection can't be derived before the first parse.
+	 * A derived projection is registered once per reader and content delivery
+	 * configuration, so that its states are shared by all the readers.
+	 */
+	private PathProjection getProjection(CompiledReaderConfig config, ExecutionContext executionContext) {
+		if(config.projection != null || !config.autoProjection) {
+			return config.projection;
+		}
+
+		ContentDeliveryConfig contentDeliveryConfig = executionContext.getContentDeliveryRuntime().getContentDeliveryConfig();
+		DerivedProjection derived = derivedProjection;
+		if(derived == null || derived.contentDeliveryConfig != contentDeliveryConfig) {
+			DerivedProjectionKey key = new DerivedProjectionKey(resourceConfig, contentDeliveryConfig);
+			synchronized (registry) {
+				derived = registry.lookup(key);
+				if(derived == null) {
+					derived = new DerivedProjection(contentDeliveryConfig, SelectorProjection.derive(contentDeliveryConfig, config.rootName));
+					registry.registerObject(key, derived);
+				}
+			}
+			derivedProjection = derived;
+		}
+		return derived.projection;
+	}
 
-	        yamlToSaxHandler.endElementStructure(rootName);
+	/**
+	 * @return The stop condition or <code>null</code> if the whole YAML stream is read
+	 */
+	private static StopCondition compileStopCondition(Optional<String> stopAfterPaths, int stopAfterDocuments) {
+		if(!stopAfterPaths.isPresent() && stopAfterDocuments == Integer.MAX_VALUE) {
+			return null;
+		}
+		try {
+			return StopCondition.compile(stopAfterPaths.map(paths -> Arrays.asList(paths.trim().split("\\s*,\\s*"))).orElse(Collections.emptyList()), stopAfterDocuments);
+		} catch (IllegalArgumentException e) {
+			throw new SmooksConfigException("Invalid 'stopAfterPaths' or 'stopAfterDocuments' parameter: " + e.getMessage(), e);
+		}
+	}
 
-	        contentHandler.endDocument();
+	private static PathProjection compileProjection(String projectionPaths) {
+		try {
+			return PathProjection.compile(Arrays.asList(projectionPaths.trim().split("\\s*,\\s*")));
+		} catch (IllegalArgumentException e) {
+			throw new SmooksConfigException("Invalid 'projectionPaths' parameter: " + e.getMessage(), e);
+		}
+	}
 
-        } finally {
-        	contentHandler = null;
-        	executionContext = null;
-        }
+	/**
+	 * Returns the element name formatter of this reader configuration. Smooks creates a
+	 * reader per concurrent execution, so the formatter, and with that its name cache, is
+	 * registered once per configuration and shared by all the readers.
+	 */
+	private ElementNameFormatter lookupElementNameFormatter() {
+		ElementNameFormatterKey key = new ElementNameFormatterKey(resourceConfig);
+
+		synchronized (registry) {
+			ElementNameFormatter elementNameFormatter = registry.lookup(key);
+			if(elementNameFormatter == null) {
+				elementNameFormatter = new ElementNameFormatter(initKeyMap(), keyWhitspaceReplacement.orElse(null), keyPrefixOnNumeric.orElse(null), illegalElementNameCharReplacement.orElse(null), elementNameCacheSize);
+				registry.registerObject(key, elementNameFormatter);
+			}
+			return elementNameFormatter;
+		}
 	}
 
+	/**
+	 * Returns the executor of the pipeline threads of the Smooks instance, which is
+	 * registered once and shared by all the pipelined readers.
+	 */
+	private PipelineExecutor lookupPipelineExecutor() {
+		synchronized (registry) {
+			PipelineExecutor registeredExecutor = registry.lookup(PipelineExecutor.class);
+			if(registeredExecutor == null) {
+				registeredExecutor = new PipelineExecutor(Runtime.getRuntime().availableProcessors());
+				registry.registerObject(PipelineExecutor.class, registeredExecutor);
+			}
+			return registeredExecutor;
+		}
+	}
 
+	/**
+	 * Returns the metrics that receive the statistics of the parses. That is the
+	 * {@link ReaderMetrics} in the registry or else the {@link JmxReaderMetrics} of this
+	 * reader configuration, which is registered once and shared by all the readers.
+	 */
+	private ReaderMetrics lookupReaderMetrics() {
+		ReaderMetricsKey key = new ReaderMetricsKey(resourceConfig);
+
+		synchronized (registry) {
+			ReaderMetrics registeredMetrics = registry.lookup(ReaderMetrics.class);
+			if(registeredMetrics != null) {
+				return registeredMetrics;
+			}
+
+			JmxReaderMetrics jmxReaderMetrics = registry.lookup(key);
+			if(jmxReaderMetrics == null) {
+				jmxReaderMetrics = new JmxReaderMetrics(rootName);
+				jmxReaderMetrics.register();
+				registry.registerObject(key, jmxReaderMetrics);
+			}
+			return jmxReaderMetrics;
+		}
+	}
 
 	/**
 	 *
@@ -301,6 +621,7 @@ public class YamlReader implements SmooksXMLReader {
 	 */
 	public void setRootName(String rootName) {
 		this.rootName = rootName;
+		compiledConfig = null;
 	}
 
 
@@ -317,6 +638,7 @@ public class YamlReader implements SmooksXMLReader {
 	 */
 	public void setArrayElementName(String arrayElementName) {
 		this.arrayElementName = arrayElementName;
+		compiledConfig = null;
 	}
 
 
@@ -370,6 +692,22 @@ public class YamlReader implements SmooksXMLReader {
 
     public void setIndent(boolean indent) {
         this.indent = indent;
+        compiledConfig = null;
+    }
+
+	/**
+	 * @return the element name formatter, which is shared by all the readers of this configuration
+	 */
+	public ElementNameFormatter getElementNameFormatter() {
+		return elementNameFormatter;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.xml.sax.XMLReader#parse(java.lang.String)
+	 */
+    public void parse(String systemId) throws IOException, SAXException {
+        parse(new InputSource(systemId));
     }
 
 	/****************************************************************************
@@ -378,10 +716,6 @@ public class YamlReader implements SmooksXMLReader {
      *
      ****************************************************************************/
 
-    public void parse(String systemId) throws IOException, SAXException {
-        throw new UnsupportedOperationException("Operation not supports by this reader.");
-    }
-
     public boolean getFeature(String name) throws SAXNotRecognizedException,
             SAXNotSupportedException {
         return false;
@@ -420,4 +754,106 @@ public class YamlReader implements SmooksXMLReader {
     public void setProperty(String name, Object value)
             throws SAXNotRecognizedException, SAXNotSupportedException {
     }
+
+    private static final class DerivedProjection {
+
+    	private final ContentDeliveryConfig contentDeliveryConfig;
+
+    	/**
+    	 * <code>null</code> if all the elements are needed.
+    	 */
+    	private final PathProjection projection;
+
+    	private DerivedProjection(ContentDeliveryConfig contentDeliveryConfig, PathProjection projection) {
+    		this.contentDeliveryConfig = contentDeliveryConfig;
+    		this.projection = projection;
+    	}
+    }
+
+    /**
+     * Registry key of the projection that is derived for a reader configuration and a
+     * content delivery configuration. Both are compared by identity.
+     */
+    private static final class DerivedProjectionKey {
+
+    	private final ResourceConfig resourceConfig;
+
+    	private final ContentDeliveryConfig contentDeliveryConfig;
+
+    	private DerivedProjectionKey(ResourceConfig resourceConfig, ContentDeliveryConfig contentDeliveryConfig) {
+    		this.resourceConfig = resourceConfig;
+    		this.contentDeliveryConfig = contentDeliveryConfig;
+    	}
+
+    	@Override
+    	public boolean equals(Object o) {
+    		return o instanceof DerivedProjectionKey && ((DerivedProjectionKey) o).resourceConfig == resourceConfig
+    				&& ((DerivedProjectionKey) o).contentDeliveryConfig == contentDeliveryConfig;
+    	}
+
+    	@Override
+    	public int hashCode() {
+    		return 31 * System.identityHashCode(resourceConfig) + System.identityHashCode(contentDeliveryConfig);
+    	}
+
+    	@Override
+    	public String toString() {
+    		return PathProjection.class.getName() + "@" + resourceConfig;
+    	}
+    }
+
+    /**
+     * Registry key of the JMX metrics of a reader configuration.
+     */
+    private static final class ReaderMetricsKey {
+
+    	private final ResourceConfig resourceConfig;
+
+    	private ReaderMetricsKey(ResourceConfig resourceConfig) {
+    		this.resourceConfig = resourceConfig;
+    	}
+
+    	@Override
+    	public boolean equals(Object o) {
+    		return o instanceof ReaderMetricsKey && ((ReaderMetricsKey) o).resourceConfig == resourceConfig;
+    	}
+
+    	@Override
+    	public int hashCode() {
+    		return System.identityHashCode(resourceConfig);
+    	}
+
+    	@Override
+    	public String toString() {
+    		return JmxReaderMetrics.class.getName() + "@" + resourceConfig;
+    	}
+    }
+
+    /**
+     * Registry key of the element name formatter of a reader configuration. Resource
+     * configurations are compared by identity, because their contents can be changed.
+     */
+    private static final class ElementNameFormatterKey {
+
+    	private final ResourceConfig resourceConfig;
+
+    	private ElementNameFormatterKey(ResourceConfig resourceConfig) {
+    		this.resourceConfig = resourceConfig;
+    	}
+
+    	@Override
+    	public boolean equals(Object o) {
+    		return o instanceof ElementNameFormatterKey && ((ElementNameFormatterKey) o).resourceConfig == resourceConfig;
+    	}
+
+    	@Override
+    	public int hashCode() {
+    		return System.identityHashCode(resourceConfig);
+    	}
+
+    	@Override
+    	public String toString() {
+    		return ElementNameFormatter.class.getName() + "@" + resourceConfig;
+    	}
+    }
 }
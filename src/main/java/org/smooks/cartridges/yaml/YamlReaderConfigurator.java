@@ -46,9 +46,14 @@ import org.smooks.api.resource.config.Parameter;
 import org.smooks.api.resource.config.ReaderConfigurator;
 import org.smooks.api.resource.config.ResourceConfig;
 import org.smooks.assertion.AssertArgument;
+import org.smooks.cartridges.yaml.handler.PathProjection;
+import org.smooks.cartridges.yaml.handler.StopCondition;
+import org.smooks.cartridges.yaml.metrics.JmxReaderMetrics;
+import org.smooks.cartridges.yaml.metrics.ReaderMetrics;
 import org.smooks.engine.resource.config.DefaultParameter;
 import org.smooks.engine.resource.config.GenericReaderConfigurator;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -73,6 +78,24 @@ public class YamlReaderConfigurator implements ReaderConfigurator {
     private String anchorAttributeName = YamlReader.DEFAULT_ANCHOR_NAME;
     private String aliasAttributeName = YamlReader.DEFAULT_ALIAS_NAME;
     private boolean indent = false;
+    private int elementNameCacheSize = ElementNameFormatter.DEFAULT_CACHE_SIZE;
+    private Long anchorMemoryBudget;
+    private Integer readerBufferSize;
+    private Boolean preferByteStream;
+    private Boolean processComments;
+    private Integer codePointLimit;
+    private Integer nestingDepthLimit;
+    private Boolean pipelined;
+    private Integer pipelineCapacity;
+    private Boolean nativeTokenizer;
+    private List<String> projectionPaths;
+    private Boolean autoProjection;
+    private List<String> stopAfterPaths;
+    private Integer stopAfterDocuments;
+    private Boolean metrics;
+    private String typeAttributeName;
+    private Boolean typedValues;
+    private Integer largeScalarThreshold;
 
     /**
      * The element name of the document root.
@@ -246,6 +269,342 @@ public class YamlReaderConfigurator implements ReaderConfigurator {
 		return this;
 	}
 
+	/**
+	 * The maximum number of formatted element names that are cached. The cache
+	 * is shared by all the readers of this configuration. A value of 0 disables
+	 * the cache.
+	 *
+	 * Default: 1024
+	 *
+	 * @param elementNameCacheSize
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setElementNameCacheSize(int elementNameCacheSize) {
+		if(elementNameCacheSize < 0) {
+			throw new IllegalArgumentException("'elementNameCacheSize' must not be negative.");
+		}
+
+		this.elementNameCacheSize = elementNameCacheSize;
+
+		return this;
+	}
+
+	/**
+	 * The estimated number of bytes that the events of the anchors may use, per
+	 * execution, when the aliasStrategy is RESOLVE or REFER_RESOLVE. When the
+	 * anchors need more then their events are written to a temporary file and
+	 * read back from it when an alias is resolved.
+	 *
+	 * Default: unlimited
+	 *
+	 * @param anchorMemoryBudget
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setAnchorMemoryBudget(long anchorMemoryBudget) {
+		if(anchorMemoryBudget < 0) {
+			throw new IllegalArgumentException("'anchorMemoryBudget' must not be negative.");
+		}
+
+		this.anchorMemoryBudget = anchorMemoryBudget;
+
+		return this;
+	}
+
+	/**
+	 * The size, in bytes and chars, of the buffers that decode a byte stream or
+	 * a memory mapped file.
+	 *
+	 * Default: 65536
+	 *
+	 * @param readerBufferSize
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setReaderBufferSize(int readerBufferSize) {
+		if(readerBufferSize < 1) {
+			throw new IllegalArgumentException("'readerBufferSize' must be positive.");
+		}
+
+		this.readerBufferSize = readerBufferSize;
+
+		return this;
+	}
+
+	/**
+	 * If the byte stream of the InputSource is decoded by the reader when the
+	 * InputSource also has a character stream. The character stream has precedence
+	 * otherwise, so only set this when the character stream is an unread
+	 * InputStreamReader over the same byte stream, like in the InputSource that
+	 * Smooks creates for a StreamSource with an InputStream.
+	 *
+	 * Default: false
+	 *
+	 * @param preferByteStream
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setPreferByteStream(boolean preferByteStream) {
+		this.preferByteStream = preferByteStream;
+
+		return this;
+	}
+
+	/**
+	 * If the YAML parser processes the comments of the YAML stream. Comments
+	 * don't result in SAX events, so this only makes the parser do more work.
+	 *
+	 * Default: false
+	 *
+	 * @param processComments
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setProcessComments(boolean processComments) {
+		this.processComments = processComments;
+
+		return this;
+	}
+
+	/**
+	 * The maximum number of code points that a YAML document may have. The
+	 * parse fails when a document is bigger.
+	 *
+	 * Default: 3145728
+	 *
+	 * @param codePointLimit
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setCodePointLimit(int codePointLimit) {
+		if(codePointLimit < 1) {
+			throw new IllegalArgumentException("'codePointLimit' must be positive.");
+		}
+
+		this.codePointLimit = codePointLimit;
+
+		return this;
+	}
+
+	/**
+	 * The maximum depth of nested mappings and sequences, including the
+	 * structures that are resolved from anchors. The parse fails when the
+	 * structures are nested deeper.
+	 *
+	 * Default: unlimited
+	 *
+	 * @param nestingDepthLimit
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setNestingDepthLimit(int nestingDepthLimit) {
+		if(nestingDepthLimit < 0) {
+			throw new IllegalArgumentException("'nestingDepthLimit' must not be negative.");
+		}
+
+		this.nestingDepthLimit = nestingDepthLimit;
+
+		return this;
+	}
+
+	/**
+	 * If the YAML stream is parsed on a separate thread, so that parsing, element
+	 * name formatting and alias resolving overlap with the handling of the SAX
+	 * events by Smooks. This pays off for big messages that are handled by
+	 * expensive visitors.
+	 *
+	 * Default: false
+	 *
+	 * @param pipelined
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+
+		return this;
+	}
+
+	/**
+	 * The number of SAX events that the parsing thread can be ahead of Smooks
+	 * when the reader is pipelined. It is rounded up to a power of two.
+	 *
+	 * Default: 1024
+	 *
+	 * @param pipelineCapacity
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setPipelineCapacity(int pipelineCapacity) {
+		if(pipelineCapacity < 1) {
+			throw new IllegalArgumentException("'pipelineCapacity' must be positive.");
+		}
+
+		this.pipelineCapacity = pipelineCapacity;
+
+		return this;
+	}
+
+	/**
+	 * If the reader parses the documents that are in the common subset of YAML
+	 * with its own parser, which skips the token and mark bookkeeping of
+	 * SnakeYAML. The other documents are still parsed by SnakeYAML. The errors
+	 * of the documents of the native parser don't report a line and column.
+	 *
+	 * Default: false
+	 *
+	 * @param nativeTokenizer
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setNativeTokenizer(boolean nativeTokenizer) {
+		this.nativeTokenizer = nativeTokenizer;
+
+		return this;
+	}
+
+	/**
+	 * The paths of the elements that are needed, starting at the document element,
+	 * like <code>/document/spec/containers/&#42;/image</code>. A step is an element
+	 * name, <code>*</code> for any element or <code>**</code> for any number of
+	 * elements. The needed elements are produced with all their descendants and
+	 * their ancestors are produced around them. The subtrees of all the other
+	 * elements are skipped, without formatting their names or producing SAX events.
+	 *
+	 * Default: all the elements are produced
+	 *
+	 * @param projectionPaths
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setProjectionPaths(String... projectionPaths) {
+		AssertArgument.isNotNull(projectionPaths, "projectionPaths");
+		PathProjection.compile(Arrays.asList(projectionPaths));
+
+		this.projectionPaths = Arrays.asList(projectionPaths);
+
+		return this;
+	}
+
+	/**
+	 * If the reader derives the projection paths from the selectors of the
+	 * visitors, when no projection paths are set. An element that is selected by
+	 * a visitor is produced with all its descendants. Selectors that can select
+	 * any element, like <code>*</code>, turn the projection off.
+	 *
+	 * Default: false
+	 *
+	 * @param autoProjection
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setAutoProjection(boolean autoProjection) {
+		this.autoProjection = autoProjection;
+
+		return this;
+	}
+
+	/**
+	 * The paths of the elements after which the reader stops reading the YAML
+	 * stream, with the syntax of the projection paths. The reader stops when an
+	 * element of every path is produced and ends the elements that are open at
+	 * that moment. The rest of the stream isn't parsed.
+	 *
+	 * Default: the whole stream is read
+	 *
+	 * @param stopAfterPaths
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setStopAfterPaths(String... stopAfterPaths) {
+		AssertArgument.isNotNull(stopAfterPaths, "stopAfterPaths");
+		StopCondition.compile(Arrays.asList(stopAfterPaths), Integer.MAX_VALUE);
+
+		this.stopAfterPaths = Arrays.asList(stopAfterPaths);
+
+		return this;
+	}
+
+	/**
+	 * The number of YAML documents after which the reader stops reading the YAML
+	 * stream. The rest of the stream isn't parsed.
+	 *
+	 * Default: the whole stream is read
+	 *
+	 * @param stopAfterDocuments
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setStopAfterDocuments(int stopAfterDocuments) {
+		if(stopAfterDocuments < 1) {
+			throw new IllegalArgumentException("'stopAfterDocuments' must be positive.");
+		}
+
+		this.stopAfterDocuments = stopAfterDocuments;
+
+		return this;
+	}
+
+	/**
+	 * If the statistics of the parses are published. By default they are published
+	 * by a {@link JmxReaderMetrics} MBean per reader configuration. A
+	 * {@link ReaderMetrics} that is registered in the registry of the Smooks
+	 * application context receives them instead.
+	 *
+	 * Default: false
+	 *
+	 * @param metrics
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setMetrics(boolean metrics) {
+		this.metrics = metrics;
+
+		return this;
+	}
+
+	/**
+	 * The name of the attribute with the YAML type of a scalar element, like
+	 * <code>int</code>, <code>float</code>, <code>bool</code>, <code>null</code>,
+	 * <code>timestamp</code> or <code>str</code>.
+	 *
+	 * Default: not defined, so that the scalar elements don't get a type attribute
+	 *
+	 * @param typeAttributeName
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setTypeAttributeName(String typeAttributeName) {
+		AssertArgument.isNotNullAndNotEmpty(typeAttributeName, "typeAttributeName");
+
+		this.typeAttributeName = typeAttributeName;
+
+		return this;
+	}
+
+	/**
+	 * If the typed value of a scalar element is put in the execution context under
+	 * {@link YamlReader#TYPED_SCALAR} during the visits of the element.
+	 *
+	 * Default: false
+	 *
+	 * @param typedValues
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setTypedValues(boolean typedValues) {
+		this.typedValues = typedValues;
+
+		return this;
+	}
+
+	/**
+	 * The number of characters from which the literal and folded scalars are
+	 * written to the content handler in chunks, straight from the text of the
+	 * document, so that a big scalar isn't copied into a string first. The
+	 * scalars that are anchored, that are inside an anchor with the RESOLVE
+	 * strategy or that are typed are still produced as one string. Requires
+	 * {@link #setNativeTokenizer(boolean)}.
+	 *
+	 * Default: unlimited
+	 *
+	 * @param largeScalarThreshold
+	 * @return This configurator (for chain calls)
+	 */
+	public YamlReaderConfigurator setLargeScalarThreshold(int largeScalarThreshold) {
+		if(largeScalarThreshold < 1) {
+			throw new IllegalArgumentException("'largeScalarThreshold' must be positive.");
+		}
+
+		this.largeScalarThreshold = largeScalarThreshold;
+
+		return this;
+	}
+
 	/**
 	 * Creates the SmooksResourceConfiguration from the defined settings.
 	 *
@@ -258,9 +617,61 @@ public class YamlReaderConfigurator implements ReaderConfigurator {
         configurator.getParameters().setProperty("anchorAttributeName", anchorAttributeName);
         configurator.getParameters().setProperty("aliasAttributeName", aliasAttributeName);
         configurator.getParameters().setProperty("indent", Boolean.toString(indent));
+        configurator.getParameters().setProperty("elementNameCacheSize", Integer.toString(elementNameCacheSize));
         configurator.getParameters().setProperty("rootName", rootName);
         configurator.getParameters().setProperty("documentName", documentName);
         configurator.getParameters().setProperty("arrayElementName", arrayElementName);
+        if(anchorMemoryBudget != null) {
+            configurator.getParameters().setProperty("anchorMemoryBudget", Long.toString(anchorMemoryBudget));
+        }
+        if(readerBufferSize != null) {
+            configurator.getParameters().setProperty("readerBufferSize", Integer.toString(readerBufferSize));
+        }
+        if(preferByteStream != null) {
+            configurator.getParameters().setProperty("preferByteStream", Boolean.toString(preferByteStream));
+        }
+        if(processComments != null) {
+            configurator.getParameters().setProperty("processComments", Boolean.toString(processComments));
+        }
+        if(codePointLimit != null) {
+            configurator.getParameters().setProperty("codePointLimit", Integer.toString(codePointLimit));
+        }
+        if(nestingDepthLimit != null) {
+            configurator.getParameters().setProperty("nestingDepthLimit", Integer.toString(nestingDepthLimit));
+        }
+        if(pipelined != null) {
+            configurator.getParameters().setProperty("pipelined", Boolean.toString(pipelined));
+        }
+        if(pipelineCapacity != null) {
+            configurator.getParameters().setProperty("pipelineCapacity", Integer.toString(pipelineCapacity));
+        }
+        if(nativeTokenizer != null) {
+            configurator.getParameters().setProperty("nativeTokenizer", Boolean.toString(nativeTokenizer));
+        }
+        if(projectionPaths != null) {
+            configurator.getParameters().setProperty("projectionPaths", String.join(",", projectionPaths));
+        }
+        if(autoProjection != null) {
+            configurator.getParameters().setProperty("autoProjection", Boolean.toString(autoProjection));
+        }
+        if(stopAfterPaths != null) {
+            configurator.getParameters().setProperty("stopAfterPaths", String.join(",", stopAfterPaths));
+        }
+        if(stopAfterDocuments != null) {
+            configurator.getParameters().setProperty("stopAfterDocuments", Integer.toString(stopAfterDocuments));
+        }
+        if(metrics != null) {
+            configurator.getParameters().setProperty("metrics", Boolean.toString(metrics));
+        }
+        if(typeAttributeName != null) {
+            configurator.getParameters().setProperty("typeAttributeName", typeAttributeName);
+        }
+        if(typedValues != null) {
+            configurator.getParameters().setProperty("typedValues", Boolean.toString(typedValues));
+        }
+        if(largeScalarThreshold != null) {
+            configurator.getParameters().setProperty("largeScalarThreshold", Integer.toString(largeScalarThreshold));
+        }
         if(keyWhitspaceReplacement != null) {
             configurator.getParameters().setProperty("keyWhitspaceReplacement", keyWhitspaceReplacement);
         }
@@ -42,6 +42,7 @@
  */
 package org.smooks.cartridges.yaml.handler;
 
+import org.smooks.cartridges.yaml.parser.BlockScalar;
 import org.xml.sax.SAXException;
 import org.yaml.snakeyaml.events.AliasEvent;
 import org.yaml.snakeyaml.events.CollectionStartEvent;
@@ -67,7 +68,7 @@ public class AliasReferencingEventHandler implements EventHandler {
 	}
 
 	public void addValueEvent(ScalarEvent event, String name, String value) throws SAXException {
-		contentHandler.addContentElement(name, value, event.getAnchor(), true);
+		contentHandler.addScalarElement(name, event, event.getAnchor(), true);
 	}
 
 	public void startStructureEvent(CollectionStartEvent event, String name) throws SAXException {
@@ -87,4 +88,22 @@ public class AliasReferencingEventHandler implements EventHandler {
 		// names are provided to the methods directly and the event object has no use
 		// here
 	}
+
+	public void endDocumentEvent(Event event) throws SAXException {
+		// Nothing to do here because no anchor state is kept
+	}
+
+	public void skippedEvent(Event event) throws SAXException {
+		// Nothing to do here because the aliases only refer to the anchors by name
+	}
+
+	@Override
+	public void addBlockScalar(BlockScalar blockScalar, String name) throws SAXException {
+		contentHandler.addBlockScalarElement(name, blockScalar, blockScalar.getAnchor(), true);
+	}
+
+	@Override
+	public void skippedBlockScalar(BlockScalar blockScalar) throws SAXException {
+		// Nothing to do here because the aliases only refer to the anchors by name
+	}
 }
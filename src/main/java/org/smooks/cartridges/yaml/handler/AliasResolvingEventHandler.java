@@ -42,6 +42,8 @@
  */
 package org.smooks.cartridges.yaml.handler;
 
+import org.smooks.cartridges.yaml.jfr.YamlFlightRecorder;
+import org.smooks.cartridges.yaml.parser.BlockScalar;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.yaml.snakeyaml.events.AliasEvent;
@@ -50,9 +52,11 @@ import org.yaml.snakeyaml.events.Event;
 import org.yaml.snakeyaml.events.NodeEvent;
 import org.yaml.snakeyaml.events.ScalarEvent;
 
-import java.util.ArrayList;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -61,10 +65,18 @@ import java.util.Map;
  * <p/>
  * When addReferenceAttributes is true then attributes are set on the elements with
  * the anchors and alias containing the anchor name.
+ * <p/>
+ * The events of the anchored data structures are recorded once in a shared {@link EventLog}.
+ * An anchor only knows the range of its events within the log. An alias within an anchored
+ * data structure is recorded as the alias, together with the anchor it referred to, and
+ * is resolved again when the data structure is replayed. When the recorded events exceed
+ * the anchor memory budget then they are written to a temporary file, which is deleted
+ * when the handler is closed. The anchors, and their events, are released at the end of
+ * every document.
  *
  * @author maurice_zeijen
  */
-public class AliasResolvingEventHandler implements EventHandler {
+public class AliasResolvingEventHandler implements EventHandler, Closeable {
 
     private final YamlToSaxHandler contentHandler;
 
@@ -76,31 +88,69 @@ public class AliasResolvingEventHandler implements EventHandler {
 
     private Map<String, Anchor> anchorMap = new HashMap<String, Anchor>();
 
-    private Map<Integer, Anchor> activeAnchorMap = new HashMap<Integer, Anchor>();
+    /**
+     * The anchors of which the data structure is being read, indexed by the level of the data structure.
+     */
+    private Anchor[] activeAnchors = new Anchor[16];
+
+    private int activeAnchorCount = 0;
+
+    private final EventLog eventLog;
+
+    /**
+     * The innermost range of the event log that is being replayed. Replayed events are
+     * already in the event log and their anchors are already known.
+     */
+    private EventLog.Range replay;
+
+    private long anchorCount;
+
+    private long aliasExpansionCount;
 
     public AliasResolvingEventHandler(YamlEventStreamHandler eventStreamParser, YamlToSaxHandler contentHandler,
                                       boolean addReferenceAttributes) {
+        this(eventStreamParser, contentHandler, addReferenceAttributes, EventLog.UNLIMITED);
+    }
+
+    /**
+     * @param anchorMemoryBudget The estimated number of bytes that the anchor events may use
+     *                           before they are written to a temporary file
+     */
+    public AliasResolvingEventHandler(YamlEventStreamHandler eventStreamParser, YamlToSaxHandler contentHandler,
+                                      boolean addReferenceAttributes, long anchorMemoryBudget) {
         this.eventStreamParser = eventStreamParser;
         this.contentHandler = contentHandler;
         this.addReferenceAttributes = addReferenceAttributes;
+        this.eventLog = new EventLog(anchorMemoryBudget);
     }
 
     public void addValueEvent(ScalarEvent event, String name, String value) throws SAXException {
-        addValueEvent(event, name, value, true);
+        if (event.getAnchor() != null && replay == null) {
+            // The value of the anchor is also the event of the active anchors
+            addValueAnchor(event);
+        } else {
+            addToActiveAnchors(event);
+        }
+        contentHandler.addScalarElement(name, event, getAnchorName(event), true);
     }
 
-    private void addValueEvent(ScalarEvent event, String name, String value, boolean addAnchorAttribute) throws SAXException {
-        if (event.getAnchor() != null) {
-            addValueAnchor(event);
+    /**
+     * Writes the block scalar in chunks, unless it is part of an anchor, because then
+     * its event is logged.
+     */
+    @Override
+    public void addBlockScalar(BlockScalar blockScalar, String name) throws SAXException {
+        if (replay == null && blockScalar.getAnchor() == null && activeAnchorCount == 0) {
+            contentHandler.addBlockScalarElement(name, blockScalar, null, true);
+        } else {
+            EventHandler.super.addBlockScalar(blockScalar, name);
         }
-        addToActiveAnchors(event);
-        contentHandler.addContentElement(name, value, getAnchorName(event), addAnchorAttribute);
     }
 
     public void startStructureEvent(CollectionStartEvent event, String name) throws SAXException {
         level++;
 
-        if (event.getAnchor() != null) {
+        if (event.getAnchor() != null && replay == null) {
             addStructureAnchor(event);
         }
         addToActiveAnchors(event);
@@ -120,39 +170,43 @@ public class AliasResolvingEventHandler implements EventHandler {
     public void addAliasEvent(AliasEvent event, String name) throws SAXException {
         String anchorName = event.getAnchor();
 
-        Anchor anchor = anchorMap.get(anchorName);
+        // A replayed alias refers to the anchor that it referred to when it was read
+        Anchor anchor = replay != null ? (Anchor) eventLog.getAliasTarget(replay.lastIndex()) : null;
         if (anchor == null) {
-            throw new SAXParseException(
-                    "A non existing anchor with the name '" + anchorName +
-                            "' is referenced by the alias of the element '" + name +
-                            "'. The anchor must be declared before it can be referenced by an alias.",
-                    null,
-                    null,
-                    event.getStartMark().getLine(),
-                    event.getStartMark().getColumn());
+            anchor = getAliasTarget(event, name);
         }
-        if (activeAnchorMap.values().contains(anchor)) {
-            throw new SAXParseException(
-                    "The alias to anchor '" + anchorName +
-                            "' is declared within the element structure in which on of the parent elements declares the anchor. " +
-                            "This is not allowed because it leads to infinite loops.",
-                    null,
-                    null,
-                    event.getStartMark().getLine(),
-                    event.getStartMark().getColumn());
+
+        if (replay == null && activeAnchorCount > 0) {
+            try {
+                eventLog.appendAlias(event, anchor);
+            } catch (IOException e) {
+                throw new SAXException("Failed to write the alias '" + anchorName + "' to the anchor event log", e);
+            }
         }
 
+        aliasExpansionCount++;
 
+        Object expansionEvent = YamlFlightRecorder.beginAliasExpansion();
         if (anchor.isValueAnchor()) {
-            ScalarEvent scalarEvent = (ScalarEvent) anchor.getEvents().get(0);
+            ScalarEvent scalarEvent = (ScalarEvent) getLoggedEvent(anchor.getStart());
 
-            addValueEvent(scalarEvent, name, scalarEvent.getValue(), false);
+            contentHandler.addScalarElement(name, scalarEvent, getAnchorName(scalarEvent), false);
+            YamlFlightRecorder.commitAliasExpansion(expansionEvent, anchorName, name, 1);
         } else {
             contentHandler.startElementStructure(name, getAnchorName(event), false);
 
-            eventStreamParser.handle(this, anchor.getEvents());
+            EventLog.Range outerReplay = replay;
+            replay = eventLog.range(anchor.getStart(), anchor.getEnd());
+            try {
+                eventStreamParser.handle(this, replay);
+            } catch (UncheckedIOException e) {
+                throw new SAXException("Failed to read the events of the anchor '" + anchorName + "' from the anchor event log", e.getCause());
+            } finally {
+                replay = outerReplay;
+            }
 
             contentHandler.endElementStructure(name);
+            YamlFlightRecorder.commitAliasExpansion(expansionEvent, anchorName, name, anchor.getEnd() - anchor.getStart());
         }
 
     }
@@ -161,38 +215,191 @@ public class AliasResolvingEventHandler implements EventHandler {
         addToActiveAnchors(event);
     }
 
-    private void addValueAnchor(NodeEvent event) {
-        Anchor anchor = new Anchor(event.getAnchor(), true);
-        anchor.addEvent(event);
+    /**
+     * Anchors only exist within their document, so the anchors and their events are released.
+     */
+    public void endDocumentEvent(Event event) throws SAXException {
+        try {
+            clear();
+        } catch (IOException e) {
+            throw new SAXException("Failed to clear the anchor event log", e);
+        }
+    }
+
+    /**
+     * Records the anchors of the skipped events, as if they were handled, so that an alias
+     * in a needed element can resolve them. The skipped events of a replay are ignored,
+     * because their anchors are already known.
+     */
+    public void skippedEvent(Event event) throws SAXException {
+        if (replay != null) {
+            return;
+        }
 
-        anchorMap.put(anchor.getName(), anchor);
+        if (event instanceof CollectionStartEvent) {
+            level++;
+            if (((CollectionStartEvent) event).getAnchor() != null) {
+                addStructureAnchor((CollectionStartEvent) event);
+            }
+            addToActiveAnchors(event);
+        } else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+            addToActiveAnchors(event);
+            removeActiveAnchors();
+            level--;
+        } else if (event instanceof ScalarEvent) {
+            if (((ScalarEvent) event).getAnchor() != null) {
+                addValueAnchor((ScalarEvent) event);
+            } else {
+                addToActiveAnchors(event);
+            }
+        } else if (event instanceof AliasEvent) {
+            AliasEvent aliasEvent = (AliasEvent) event;
+            Anchor anchor = getAliasTarget(aliasEvent, null);
+            if (activeAnchorCount > 0) {
+                try {
+                    eventLog.appendAlias(aliasEvent, anchor);
+                } catch (IOException e) {
+                    throw new SAXException("Failed to write the alias '" + aliasEvent.getAnchor() + "' to the anchor event log", e);
+                }
+            }
+        }
     }
 
-    private void addStructureAnchor(NodeEvent event) throws SAXException {
-        Anchor anchor = new Anchor(event.getAnchor(), false);
+    /**
+     * Looks up the anchor of the alias and validates it, also for the alias of a skipped element,
+     * so that the projection doesn't change which documents are accepted.
+     *
+     * @param name The name of the element of the alias or null if the element is skipped
+     */
+    private Anchor getAliasTarget(AliasEvent event, String name) throws SAXException {
+        String anchorName = event.getAnchor();
+        String element = name != null ? "the alias of the element '" + name + "'" : "an alias";
 
-        if (activeAnchorMap.values().contains(anchor)) {
+        Anchor anchor = anchorMap.get(anchorName);
+        if (anchor == null) {
             throw new SAXParseException(
-                    "The anchor '" + anchor.getName() +
-                            "' is declared within the data structure of an anchor with the same name.'",
+                    "A non existing anchor with the name '" + anchorName +
+                            "' is referenced by " + element +
+                            ". The anchor must be declared before it can be referenced by an alias.",
                     null,
                     null,
-                    event.getStartMark().getLine(),
-                    event.getStartMark().getColumn());
+                    getLine(event),
+                    getColumn(event));
         }
+        if (anchor.isActive()) {
+            throw new SAXParseException(
+                    "The alias to anchor '" + anchorName +
+                            "' is declared within the element structure in which on of the parent elements declares the anchor. " +
+                            "This is not allowed because it leads to infinite loops.",
+                    null,
+                    null,
+                    getLine(event),
+                    getColumn(event));
+        }
+        return anchor;
+    }
+
+    @Override
+    public void skippedBlockScalar(BlockScalar blockScalar) throws SAXException {
+        if (replay == null && (blockScalar.getAnchor() != null || activeAnchorCount > 0)) {
+            skippedEvent(blockScalar.toEvent());
+        }
+    }
+
+    private void clear() throws IOException {
+        anchorMap.clear();
+        Arrays.fill(activeAnchors, null);
+        activeAnchorCount = 0;
+        level = 0;
+        replay = null;
+        eventLog.clear();
+    }
+
+    private void addValueAnchor(ScalarEvent event) throws SAXException {
+        Anchor anchor = new Anchor(event.getAnchor(), eventLog.size(), true);
+        appendToEventLog(event);
+        anchor.setEnd(eventLog.size());
 
         anchorMap.put(anchor.getName(), anchor);
-        activeAnchorMap.put(Integer.valueOf(level), anchor);
+        anchorCount++;
+    }
+
+    private void addStructureAnchor(NodeEvent event) throws SAXException {
+        Anchor anchor = new Anchor(event.getAnchor(), eventLog.size(), false);
+
+        anchorMap.put(anchor.getName(), anchor);
+        anchorCount++;
+        if (level >= activeAnchors.length) {
+            activeAnchors = Arrays.copyOf(activeAnchors, Math.max(level + 1, activeAnchors.length << 1));
+        }
+        activeAnchors[level] = anchor;
+        activeAnchorCount++;
+    }
+
+    private void addToActiveAnchors(Event event) throws SAXException {
+        if (replay == null && activeAnchorCount > 0) {
+            appendToEventLog(event);
+        }
+    }
+
+    private void appendToEventLog(Event event) throws SAXException {
+        try {
+            eventLog.append(event);
+        } catch (IOException e) {
+            throw new SAXException("Failed to write to the anchor event log", e);
+        }
     }
 
-    private void addToActiveAnchors(Event event) {
-        for (Anchor anchor : activeAnchorMap.values()) {
-            anchor.addEvent(event);
+    private Event getLoggedEvent(int index) throws SAXException {
+        try {
+            return eventLog.get(index);
+        } catch (IOException e) {
+            throw new SAXException("Failed to read from the anchor event log", e);
         }
     }
 
+    /**
+     * Deletes the temporary file of the anchor events, if the events didn't fit the memory budget.
+     * The handler can be used for the next parse after it is closed, also when the parse failed.
+     */
+    public void close() throws IOException {
+        anchorCount = 0;
+        aliasExpansionCount = 0;
+        clear();
+    }
+
+    /**
+     * @return The number of anchors that are captured since the handler was closed
+     */
+    public long getAnchorCount() {
+        return anchorCount;
+    }
+
+    /**
+     * @return The number of aliases that are resolved since the handler was closed
+     */
+    public long getAliasExpansionCount() {
+        return aliasExpansionCount;
+    }
+
     private void removeActiveAnchors() {
-        activeAnchorMap.remove(Integer.valueOf(level));
+        Anchor anchor = level < activeAnchors.length ? activeAnchors[level] : null;
+        if (anchor != null) {
+            activeAnchors[level] = null;
+            activeAnchorCount--;
+            anchor.setEnd(eventLog.size());
+        }
+    }
+
+    /**
+     * Replayed events that were read from the temporary file of the event log don't have marks.
+     */
+    private static int getLine(Event event) {
+        return event.getStartMark() != null ? event.getStartMark().getLine() : -1;
+    }
+
+    private static int getColumn(Event event) {
+        return event.getStartMark() != null ? event.getStartMark().getColumn() : -1;
     }
 
     private String getAnchorName(NodeEvent nodeEvent) {
@@ -205,11 +412,16 @@ public class AliasResolvingEventHandler implements EventHandler {
 
         private final boolean valueAnchor;
 
-        private final List<Event> events = new ArrayList<Event>();
+        private final int start;
+
+        private int end = -1;
 
-        private Anchor(String name, boolean valueAnchor) {
-            super();
+        /**
+         * @param start The index in the event log of the first event of the anchor
+         */
+        private Anchor(String name, int start, boolean valueAnchor) {
             this.name = name;
+            this.start = start;
             this.valueAnchor = valueAnchor;
         }
 
@@ -217,54 +429,27 @@ public class AliasResolvingEventHandler implements EventHandler {
             return name;
         }
 
-        public void addEvent(Event event) {
-            events.add(event);
+        public boolean isValueAnchor() {
+            return valueAnchor;
         }
 
-        public List<Event> getEvents() {
-            return events;
+        public int getStart() {
+            return start;
         }
 
-        public boolean isValueAnchor() {
-            return valueAnchor;
+        public int getEnd() {
+            return end;
         }
 
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + ((events == null) ? 0 : events.hashCode());
-            result = prime * result + ((name == null) ? 0 : name.hashCode());
-            return result;
+        public void setEnd(int end) {
+            this.end = end;
         }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) {
-                return true;
-            }
-            if (obj == null) {
-                return false;
-            }
-            if (getClass() != obj.getClass()) {
-                return false;
-            }
-            Anchor other = (Anchor) obj;
-            if (events == null) {
-                if (other.events != null) {
-                    return false;
-                }
-            } else if (!events.equals(other.events)) {
-                return false;
-            }
-            if (name == null) {
-                if (other.name != null) {
-                    return false;
-                }
-            } else if (!name.equals(other.name)) {
-                return false;
-            }
-            return true;
+        /**
+         * @return <code>true</code> while the data structure of the anchor is being read
+         */
+        public boolean isActive() {
+            return end < 0;
         }
 
     }
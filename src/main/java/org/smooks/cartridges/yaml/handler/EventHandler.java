@@ -42,6 +42,7 @@
  */
 package org.smooks.cartridges.yaml.handler;
 
+import org.smooks.cartridges.yaml.parser.BlockScalar;
 import org.xml.sax.SAXException;
 import org.yaml.snakeyaml.events.AliasEvent;
 import org.yaml.snakeyaml.events.CollectionStartEvent;
@@ -66,4 +67,35 @@ public interface EventHandler {
 
 	void addAliasEvent(AliasEvent event, String name) throws SAXException;
 
+	/**
+	 * Called at the end of every YAML document of the stream. Anchors are scoped to
+	 * their document, so any state that is kept for them can be released here.
+	 */
+	void endDocumentEvent(Event event) throws SAXException;
+
+	/**
+	 * Called for the events of the subtrees that are skipped, because the projection
+	 * doesn't need them. They don't result in SAX events, but the anchors in them can
+	 * still be referenced by an alias in a needed element.
+	 */
+	void skippedEvent(Event event) throws SAXException;
+
+	/**
+	 * Called for a large block scalar of the native parser instead of
+	 * {@link #addValueEvent(ScalarEvent, String, String)}, so that the value can be
+	 * written in chunks. By default the event with the whole value is created.
+	 */
+	default void addBlockScalar(BlockScalar blockScalar, String name) throws SAXException {
+		ScalarEvent event = blockScalar.toEvent();
+		addValueEvent(event, name, event.getValue());
+	}
+
+	/**
+	 * Called for a large block scalar of the native parser instead of
+	 * {@link #skippedEvent(Event)}. By default the event with the whole value is created.
+	 */
+	default void skippedBlockScalar(BlockScalar blockScalar) throws SAXException {
+		skippedEvent(blockScalar.toEvent());
+	}
+
 }
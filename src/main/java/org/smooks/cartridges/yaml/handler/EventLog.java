@@ -0,0 +1,600 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.handler;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.Event.ID;
+import org.yaml.snakeyaml.events.ImplicitTuple;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Append-only log of the events of anchored data structures. An anchor only
+ * remembers the range of its events in the log, so nested anchors share the
+ * same events instead of each having a copy.
+ * <p/>
+ * The log doesn't keep the SnakeYAML events. In memory an event is a record of
+ * four ints: the event type with its flags, and the indexes of its anchor, tag
+ * and value in a string table. Short strings, like the keys, are interned in the
+ * table. The events are created again, without marks, when they are first replayed,
+ * and are kept with their record, so that an anchor that is expanded many times
+ * creates its events once. The events are immutable, so they can be shared.
+ * <p/>
+ * The events are kept in memory until their estimated size exceeds the memory
+ * budget. From then on the log is written to a temporary file and the events are
+ * read back from the file when they are replayed. The file is deleted when the
+ * log is closed.
+ */
+final class EventLog implements Closeable {
+
+	static final long UNLIMITED = Long.MAX_VALUE;
+
+	private static final int RECORD_SIZE = 4;
+
+	private static final int FLAGS = 0;
+	private static final int ANCHOR = 1;
+	private static final int TAG = 2;
+	private static final int VALUE = 3;
+
+	private static final int TYPE_MASK = 0x7;
+	private static final int STYLE_SHIFT = 3;
+	private static final int STYLE_MASK = 0x7;
+	private static final int IMPLICIT_1 = 1 << 6;
+	private static final int IMPLICIT_2 = 1 << 7;
+
+	private static final int NO_STRING = -1;
+
+	/**
+	 * Longer strings, which are mostly values, are rarely repeated and aren't interned.
+	 */
+	private static final int MAX_INTERNED_LENGTH = 64;
+
+	/**
+	 * Rough estimate of the heap used by a string in the string table without its characters.
+	 */
+	private static final int STRING_SIZE = 56;
+
+	/**
+	 * Rough estimate of the heap used by a replayed event that is kept with its record.
+	 */
+	private static final int EVENT_SIZE = 48;
+
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+	private static final byte SCALAR = 1;
+	private static final byte MAPPING_START = 2;
+	private static final byte MAPPING_END = 3;
+	private static final byte SEQUENCE_START = 4;
+	private static final byte SEQUENCE_END = 5;
+	private static final byte ALIAS = 6;
+
+	private static final DumperOptions.ScalarStyle[] SCALAR_STYLES = DumperOptions.ScalarStyle.values();
+
+	private static final DumperOptions.FlowStyle[] FLOW_STYLES = DumperOptions.FlowStyle.values();
+
+	/** The implicit tuples of the scalars, by their IMPLICIT_1 and IMPLICIT_2 flags. */
+	private static final ImplicitTuple[] IMPLICIT_TUPLES = {
+			new ImplicitTuple(false, false), new ImplicitTuple(true, false), new ImplicitTuple(false, true), new ImplicitTuple(true, true)};
+
+	private static final MappingEndEvent MAPPING_END_EVENT = new MappingEndEvent(null, null);
+
+	private static final SequenceEndEvent SEQUENCE_END_EVENT = new SequenceEndEvent(null, null);
+
+	private final long memoryBudget;
+
+	private int[] records = new int[RECORD_SIZE * 64];
+
+	/** The events of the records that are replayed, by the index of the record. */
+	private Event[] events = new Event[64];
+
+	private final ArrayList<String> strings = new ArrayList<String>();
+
+	private final Map<String, Integer> internedStrings = new HashMap<String, Integer>();
+
+	private long estimatedSize;
+
+	private int size;
+
+	// Only used when the log is spilled to a file...
+
+	private Path file;
+
+	private RandomAccessFile fileAccess;
+
+	private long[] offsets;
+
+	private final WriteBuffer writeBuffer = new WriteBuffer();
+
+	private final DataOutputStream writeBufferOutput = new DataOutputStream(writeBuffer);
+
+	private long writeBufferOffset;
+
+	/** The bytes of the event that is read from the file. */
+	private byte[] readBuffer = new byte[256];
+
+	private int readPosition;
+
+	// The targets of the logged aliases, by the index of the alias in the log...
+
+	private int[] aliasIndexes = new int[16];
+
+	private Object[] aliasTargets = new Object[16];
+
+	private int aliasCount;
+
+	/**
+	 * @param memoryBudget The estimated number of bytes the events may use before the log is written to a file
+	 */
+	EventLog(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	void append(Event event) throws IOException {
+		if (file == null) {
+			addRecord(event);
+			if (estimatedSize > memoryBudget) {
+				spill();
+			}
+		} else {
+			write(event);
+		}
+	}
+
+	/**
+	 * Appends an alias together with the anchor it refers to. The anchor is returned
+	 * by {@link #getAliasTarget(int)} when the alias is replayed.
+	 */
+	void appendAlias(AliasEvent event, Object target) throws IOException {
+		if (aliasCount == aliasIndexes.length) {
+			aliasIndexes = Arrays.copyOf(aliasIndexes, aliasCount << 1);
+			aliasTargets = Arrays.copyOf(aliasTargets, aliasCount << 1);
+		}
+		aliasIndexes[aliasCount] = size;
+		aliasTargets[aliasCount] = target;
+		aliasCount++;
+
+		append(event);
+	}
+
+	/**
+	 * @return The target of the alias at the given index or <code>null</code> if the event isn't a logged alias
+	 */
+	Object getAliasTarget(int index) {
+		int i = Arrays.binarySearch(aliasIndexes, 0, aliasCount, index);
+		return i >= 0 ? aliasTargets[i] : null;
+	}
+
+	int size() {
+		return size;
+	}
+
+	Event get(int index) throws IOException {
+		if (file == null) {
+			return createEvent(index);
+		}
+		return read(index);
+	}
+
+	/**
+	 * Returns the events from start (inclusive) to end (exclusive). The range is
+	 * iterated by index, so events can be appended to the log while the range is
+	 * replayed.
+	 */
+	Range range(int start, int end) {
+		return new Range(start, end);
+	}
+
+	/**
+	 * A range of the log that can be iterated once. It knows the index of the last
+	 * returned event, so that the target of a replayed alias can be looked up.
+	 */
+	final class Range implements Iterable<Event>, Iterator<Event> {
+
+		private final int end;
+
+		private int index;
+
+		private Range(int start, int end) {
+			this.index = start;
+			this.end = end;
+		}
+
+		public Iterator<Event> iterator() {
+			return this;
+		}
+
+		public boolean hasNext() {
+			return index < end;
+		}
+
+		public Event next() {
+			if (index >= end) {
+				throw new NoSuchElementException();
+			}
+			try {
+				return get(index++);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to read the anchor events from '" + file + "'", e);
+			}
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * @return The index in the log of the event that was last returned by {@link #next()}
+		 */
+		int lastIndex() {
+			return index - 1;
+		}
+	}
+
+	/**
+	 * Removes all the events. The log is kept in memory again until it exceeds the memory budget.
+	 */
+	void clear() throws IOException {
+		clearRecords();
+		estimatedSize = 0;
+		size = 0;
+		Arrays.fill(aliasTargets, 0, aliasCount, null);
+		aliasCount = 0;
+		writeBuffer.reset();
+		writeBufferOffset = 0;
+		if (file != null) {
+			try {
+				fileAccess.close();
+			} finally {
+				Files.deleteIfExists(file);
+				file = null;
+				fileAccess = null;
+				offsets = null;
+			}
+		}
+	}
+
+	public void close() throws IOException {
+		clear();
+	}
+
+	private void spill() throws IOException {
+		file = Files.createTempFile("smooks-yaml-anchors", ".log");
+		fileAccess = new RandomAccessFile(file.toFile(), "rw");
+		offsets = new long[Math.max(16, size * 2)];
+		writeBufferOffset = 0;
+
+		int recordCount = size;
+		size = 0;
+		for (int i = 0; i < recordCount; i++) {
+			write(events[i] != null ? events[i] : newEvent(i));
+		}
+		clearRecords();
+		estimatedSize = 0;
+	}
+
+	private void addRecord(Event event) {
+		int offset = size * RECORD_SIZE;
+		if (offset == records.length) {
+			records = Arrays.copyOf(records, records.length << 1);
+			events = Arrays.copyOf(events, events.length << 1);
+			estimatedSize += 4L * (records.length - offset) + 8L * (events.length - size);
+		}
+
+		int flags;
+		int anchor = NO_STRING;
+		int tag = NO_STRING;
+		int value = NO_STRING;
+		if (event.is(ID.Scalar)) {
+			ScalarEvent scalarEvent = (ScalarEvent) event;
+			flags = SCALAR | scalarEvent.getScalarStyle().ordinal() << STYLE_SHIFT;
+			if (scalarEvent.getImplicit().canOmitTagInPlainScalar()) {
+				flags |= IMPLICIT_1;
+			}
+			if (scalarEvent.getImplicit().canOmitTagInNonPlainScalar()) {
+				flags |= IMPLICIT_2;
+			}
+			anchor = addString(scalarEvent.getAnchor());
+			tag = addString(scalarEvent.getTag());
+			value = addString(scalarEvent.getValue());
+		} else if (event.is(ID.MappingStart) || event.is(ID.SequenceStart)) {
+			CollectionStartEvent collectionStartEvent = (CollectionStartEvent) event;
+			flags = (event.is(ID.MappingStart) ? MAPPING_START : SEQUENCE_START) | collectionStartEvent.getFlowStyle().ordinal() << STYLE_SHIFT;
+			if (collectionStartEvent.getImplicit()) {
+				flags |= IMPLICIT_1;
+			}
+			anchor = addString(collectionStartEvent.getAnchor());
+			tag = addString(collectionStartEvent.getTag());
+		} else if (event.is(ID.MappingEnd)) {
+			flags = MAPPING_END;
+		} else if (event.is(ID.SequenceEnd)) {
+			flags = SEQUENCE_END;
+		} else if (event.is(ID.Alias)) {
+			flags = ALIAS;
+			anchor = addString(((AliasEvent) event).getAnchor());
+		} else {
+			throw new IllegalArgumentException("Unexpected event in the anchor event log: " + event);
+		}
+
+		records[offset + FLAGS] = flags;
+		records[offset + ANCHOR] = anchor;
+		records[offset + TAG] = tag;
+		records[offset + VALUE] = value;
+		size++;
+	}
+
+	private Event createEvent(int index) {
+		Event event = events[index];
+		if (event == null) {
+			event = newEvent(index);
+			events[index] = event;
+			estimatedSize += EVENT_SIZE;
+		}
+		return event;
+	}
+
+	private Event newEvent(int index) {
+		int offset = index * RECORD_SIZE;
+		int flags = records[offset + FLAGS];
+		String anchor = getString(records[offset + ANCHOR]);
+		String tag = getString(records[offset + TAG]);
+		int style = flags >>> STYLE_SHIFT & STYLE_MASK;
+
+		switch (flags & TYPE_MASK) {
+			case SCALAR:
+				return new ScalarEvent(anchor, tag, IMPLICIT_TUPLES[(flags & (IMPLICIT_1 | IMPLICIT_2)) >>> 6],
+						getString(records[offset + VALUE]), null, null, SCALAR_STYLES[style]);
+			case MAPPING_START:
+				return new MappingStartEvent(anchor, tag, (flags & IMPLICIT_1) != 0, null, null, FLOW_STYLES[style]);
+			case SEQUENCE_START:
+				return new SequenceStartEvent(anchor, tag, (flags & IMPLICIT_1) != 0, null, null, FLOW_STYLES[style]);
+			case MAPPING_END:
+				return MAPPING_END_EVENT;
+			case SEQUENCE_END:
+				return SEQUENCE_END_EVENT;
+			default:
+				return new AliasEvent(anchor, null, null);
+		}
+	}
+
+	private int addString(String string) {
+		if (string == null) {
+			return NO_STRING;
+		}
+
+		boolean intern = string.length() <= MAX_INTERNED_LENGTH;
+		if (intern) {
+			Integer index = internedStrings.get(string);
+			if (index != null) {
+				return index;
+			}
+		}
+
+		int index = strings.size();
+		strings.add(string);
+		estimatedSize += STRING_SIZE + 2L * string.length();
+		if (intern) {
+			internedStrings.put(string, index);
+			estimatedSize += STRING_SIZE;
+		}
+		return index;
+	}
+
+	private String getString(int index) {
+		return index == NO_STRING ? null : strings.get(index);
+	}
+
+	private void clearRecords() {
+		if (records.length > RECORD_SIZE * 64) {
+			records = new int[RECORD_SIZE * 64];
+			events = new Event[64];
+		} else {
+			Arrays.fill(events, null);
+		}
+		strings.clear();
+		strings.trimToSize();
+		internedStrings.clear();
+	}
+
+	private void write(Event event) throws IOException {
+		if (size == offsets.length) {
+			offsets = Arrays.copyOf(offsets, size << 1);
+		}
+		offsets[size++] = writeBufferOffset + writeBuffer.size();
+
+		writeEvent(event, writeBufferOutput);
+
+		if (writeBuffer.size() >= WRITE_BUFFER_SIZE) {
+			flush();
+		}
+	}
+
+	private void flush() throws IOException {
+		if (writeBuffer.size() > 0) {
+			fileAccess.seek(writeBufferOffset);
+			writeBuffer.writeTo(fileAccess);
+			writeBufferOffset += writeBuffer.size();
+			writeBuffer.reset();
+		}
+	}
+
+	private Event read(int index) throws IOException {
+		long offset = offsets[index];
+		long endOffset = index + 1 < size ? offsets[index + 1] : writeBufferOffset + writeBuffer.size();
+
+		flush();
+
+		int length = (int) (endOffset - offset);
+		if (length > readBuffer.length) {
+			readBuffer = new byte[Math.max(length, readBuffer.length << 1)];
+		}
+		fileAccess.seek(offset);
+		fileAccess.readFully(readBuffer, 0, length);
+
+		readPosition = 0;
+		return readEvent();
+	}
+
+	private void writeEvent(Event event, DataOutput output) throws IOException {
+		if (event.is(ID.Scalar)) {
+			ScalarEvent scalarEvent = (ScalarEvent) event;
+			output.writeByte(SCALAR);
+			writeString(scalarEvent.getAnchor(), output);
+			writeString(scalarEvent.getTag(), output);
+			output.writeBoolean(scalarEvent.getImplicit().canOmitTagInPlainScalar());
+			output.writeBoolean(scalarEvent.getImplicit().canOmitTagInNonPlainScalar());
+			output.writeByte(scalarEvent.getScalarStyle().ordinal());
+			writeString(scalarEvent.getValue(), output);
+		} else if (event.is(ID.MappingStart) || event.is(ID.SequenceStart)) {
+			CollectionStartEvent collectionStartEvent = (CollectionStartEvent) event;
+			output.writeByte(event.is(ID.MappingStart) ? MAPPING_START : SEQUENCE_START);
+			writeString(collectionStartEvent.getAnchor(), output);
+			writeString(collectionStartEvent.getTag(), output);
+			output.writeBoolean(collectionStartEvent.getImplicit());
+			output.writeByte(collectionStartEvent.getFlowStyle().ordinal());
+		} else if (event.is(ID.MappingEnd)) {
+			output.writeByte(MAPPING_END);
+		} else if (event.is(ID.SequenceEnd)) {
+			output.writeByte(SEQUENCE_END);
+		} else if (event.is(ID.Alias)) {
+			output.writeByte(ALIAS);
+			writeString(((AliasEvent) event).getAnchor(), output);
+		} else {
+			throw new IllegalArgumentException("Unexpected event in the anchor event log: " + event);
+		}
+	}
+
+	/**
+	 * Reads the event that {@link #writeEvent(Event, DataOutput)} wrote from the read buffer.
+	 */
+	private Event readEvent() throws IOException {
+		byte type = readBuffer[readPosition++];
+		switch (type) {
+			case SCALAR: {
+				String anchor = readString();
+				String tag = readString();
+				ImplicitTuple implicit = IMPLICIT_TUPLES[(readBuffer[readPosition] != 0 ? 1 : 0) | (readBuffer[readPosition + 1] != 0 ? 2 : 0)];
+				readPosition += 2;
+				DumperOptions.ScalarStyle style = SCALAR_STYLES[readBuffer[readPosition++]];
+				return new ScalarEvent(anchor, tag, implicit, readString(), null, null, style);
+			}
+			case MAPPING_START:
+			case SEQUENCE_START: {
+				String anchor = readString();
+				String tag = readString();
+				boolean implicit = readBuffer[readPosition++] != 0;
+				DumperOptions.FlowStyle flowStyle = FLOW_STYLES[readBuffer[readPosition++]];
+				if (type == MAPPING_START) {
+					return new MappingStartEvent(anchor, tag, implicit, null, null, flowStyle);
+				}
+				return new SequenceStartEvent(anchor, tag, implicit, null, null, flowStyle);
+			}
+			case MAPPING_END:
+				return MAPPING_END_EVENT;
+			case SEQUENCE_END:
+				return SEQUENCE_END_EVENT;
+			case ALIAS:
+				return new AliasEvent(readString(), null, null);
+			default:
+				throw new IOException("Corrupt anchor event log. Unknown event type " + type);
+		}
+	}
+
+	private static void writeString(String string, DataOutput output) throws IOException {
+		if (string == null) {
+			output.writeInt(-1);
+		} else {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+	}
+
+	private String readString() {
+		int length = (readBuffer[readPosition] & 0xFF) << 24 | (readBuffer[readPosition + 1] & 0xFF) << 16
+				| (readBuffer[readPosition + 2] & 0xFF) << 8 | readBuffer[readPosition + 3] & 0xFF;
+		readPosition += 4;
+		if (length < 0) {
+			return null;
+		}
+		String string = new String(readBuffer, readPosition, length, StandardCharsets.UTF_8);
+		readPosition += length;
+		return string;
+	}
+
+	/**
+	 * Hands its bytes to the file without copying them first.
+	 */
+	private static final class WriteBuffer extends ByteArrayOutputStream {
+
+		private WriteBuffer() {
+			super(WRITE_BUFFER_SIZE);
+		}
+
+		private void writeTo(RandomAccessFile file) throws IOException {
+			file.write(buf, 0, count);
+		}
+	}
+}
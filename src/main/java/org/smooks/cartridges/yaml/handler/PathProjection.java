@@ -0,0 +1,302 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.handler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which elements of the XML serialization of a YAML document are needed,
+ * from a list of element paths.
+ * <p/>
+ * A path starts at the document element, the root element isn't part of it, e.g.
+ * <code>/document/spec/containers/*&#47;image</code>. A step of a path is an element
+ * name, <code>*</code> for any one element or <code>**</code> for any number of
+ * elements, including none. An element that matches a whole path is needed with all of
+ * its descendants. The ancestors of these elements are needed, but only for their
+ * needed descendants. All the other elements aren't needed, so their subtrees can be
+ * skipped.
+ * <p/>
+ * The paths are compiled into a deterministic automaton of which the states are created
+ * as the element names are seen. The states and their transitions are shared by all
+ * the parses of the projection and are safe for concurrent use.
+ */
+public final class PathProjection {
+
+	/**
+	 * The maximum number of element names for which a state remembers its transition.
+	 * Documents with unbounded key names, like identifiers, shouldn't fill the memory.
+	 */
+	private static final int MAX_CACHED_TRANSITIONS = 1024;
+
+	private static final String ANY_ELEMENT = "*";
+
+	private static final String ANY_ELEMENTS = "**";
+
+	/**
+	 * The state of an element that matched a path. All its descendants are needed.
+	 */
+	public static final State MATCH = new State(null, new int[0]);
+
+	/**
+	 * The state of an element that can't match any path.
+	 */
+	public static final State NO_MATCH = new State(null, new int[0]);
+
+	private final List<String[]> paths;
+
+	private final List<String> pathNames;
+
+	private final Map<Key, State> states = new ConcurrentHashMap<>();
+
+	private final State startState;
+
+	private PathProjection(List<String[]> paths, List<String> pathNames) {
+		this.paths = paths;
+		this.pathNames = pathNames;
+
+		int[] start = new int[paths.size()];
+		for (int i = 0; i < start.length; i++) {
+			start[i] = position(i, 0);
+		}
+		startState = toState(closure(start, start.length));
+	}
+
+	/**
+	 * Compiles the paths.
+	 *
+	 * @param paths The element paths
+	 * @return The projection
+	 * @throws IllegalArgumentException If a path is empty or has an empty step
+	 */
+	public static PathProjection compile(Collection<String> paths) {
+		List<String[]> compiledPaths = new ArrayList<>();
+		List<String> pathNames = new ArrayList<>();
+		for (String path : paths) {
+			String trimmedPath = path.trim();
+			String steps = trimmedPath.startsWith("/") ? trimmedPath.substring(1) : trimmedPath;
+			if (steps.isEmpty()) {
+				throw new IllegalArgumentException("The projection path '" + path + "' is empty.");
+			}
+			String[] compiledPath = steps.split("/", -1);
+			if (compiledPath.length > 0xFFFF) {
+				throw new IllegalArgumentException("The projection path '" + path + "' has too many steps.");
+			}
+			for (String step : compiledPath) {
+				if (step.isEmpty()) {
+					throw new IllegalArgumentException("The projection path '" + path + "' has an empty step.");
+				}
+			}
+			compiledPaths.add(compiledPath);
+			pathNames.add(trimmedPath);
+		}
+		return new PathProjection(compiledPaths, Collections.unmodifiableList(pathNames));
+	}
+
+	/**
+	 * @return The state before the document element
+	 */
+	public State getStartState() {
+		return startState;
+	}
+
+	/**
+	 * @return The paths of the projection, as they were compiled
+	 */
+	public List<String> getPaths() {
+		return pathNames;
+	}
+
+	private State next(int[] positions, String elementName) {
+		int[] nextPositions = new int[positions.length];
+		int count = 0;
+		for (int position : positions) {
+			String[] path = paths.get(pathIndex(position));
+			int stepIndex = stepIndex(position);
+			String step = path[stepIndex];
+			if (step.equals(ANY_ELEMENTS)) {
+				nextPositions[count++] = position;
+			} else if (step.equals(ANY_ELEMENT) || step.equals(elementName)) {
+				if (stepIndex + 1 == path.length) {
+					return MATCH;
+				}
+				nextPositions[count++] = position + 1;
+			}
+		}
+		return toState(closure(nextPositions, count));
+	}
+
+	/**
+	 * Adds the positions after the <code>**</code> steps, because these steps also match
+	 * no element at all, and removes the duplicates.
+	 *
+	 * @return The sorted positions or <code>null</code> if a path is matched
+	 */
+	private int[] closure(int[] positions, int count) {
+		int[] closure = Arrays.copyOf(positions, Math.max(count * 2, 1));
+		int size = count;
+		for (int i = 0; i < size; i++) {
+			int position = closure[i];
+			String[] path = paths.get(pathIndex(position));
+			int stepIndex = stepIndex(position);
+			if (path[stepIndex].equals(ANY_ELEMENTS)) {
+				if (stepIndex + 1 == path.length) {
+					// A trailing ** matches the element itself
+					return null;
+				}
+				if (size == closure.length) {
+					closure = Arrays.copyOf(closure, size * 2);
+				}
+				closure[size++] = position + 1;
+			}
+		}
+
+		Arrays.sort(closure, 0, size);
+		int distinct = 0;
+		for (int i = 0; i < size; i++) {
+			if (distinct == 0 || closure[distinct - 1] != closure[i]) {
+				closure[distinct++] = closure[i];
+			}
+		}
+		return Arrays.copyOf(closure, distinct);
+	}
+
+	private State toState(int[] positions) {
+		if (positions == null) {
+			return MATCH;
+		}
+		if (positions.length == 0) {
+			return NO_MATCH;
+		}
+		return states.computeIfAbsent(new Key(positions), key -> new State(this, key.positions));
+	}
+
+	private static int position(int pathIndex, int stepIndex) {
+		return (pathIndex << 16) | stepIndex;
+	}
+
+	private static int pathIndex(int position) {
+		return position >>> 16;
+	}
+
+	private static int stepIndex(int position) {
+		return position & 0xFFFF;
+	}
+
+	/**
+	 * The state of an element: which steps of which paths the child elements can match.
+	 */
+	public static final class State {
+
+		private final PathProjection projection;
+
+		private final int[] positions;
+
+		private final Map<String, State> transitions;
+
+		private State(PathProjection projection, int[] positions) {
+			this.projection = projection;
+			this.positions = positions;
+			this.transitions = projection != null ? new ConcurrentHashMap<>() : null;
+		}
+
+		/**
+		 * @param elementName The name of a child element
+		 * @return The state of the child element
+		 */
+		public State next(String elementName) {
+			if (projection == null) {
+				return this;
+			}
+			State next = transitions.get(elementName);
+			if (next == null) {
+				next = projection.next(positions, elementName);
+				if (transitions.size() < MAX_CACHED_TRANSITIONS) {
+					transitions.put(elementName, next);
+				}
+			}
+			return next;
+		}
+
+		/**
+		 * @return <code>true</code> if the element matched a path, so that all its descendants are needed
+		 */
+		public boolean isMatch() {
+			return this == MATCH;
+		}
+
+		/**
+		 * @return <code>true</code> if the element and its descendants aren't needed
+		 */
+		public boolean isNoMatch() {
+			return this == NO_MATCH;
+		}
+	}
+
+	private static final class Key {
+
+		private final int[] positions;
+
+		private final int hashCode;
+
+		private Key(int[] positions) {
+			this.positions = positions;
+			this.hashCode = Arrays.hashCode(positions);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && Arrays.equals(positions, ((Key) o).positions);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
@@ -0,0 +1,389 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.handler;
+
+import org.smooks.cartridges.yaml.TypedScalar;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands the SAX events of the YAML reader from a producer thread to a consumer thread.
+ * <p/>
+ * The events are written to a bounded ring buffer of reusable slots. The buffer has a
+ * single producer and a single consumer, so it only needs two counters and no locks:
+ * the producer owns the write counter and the consumer owns the read counter. A thread
+ * that has to wait, because the buffer is full or empty, spins for a while and then
+ * parks for short periods.
+ * <p/>
+ * The producer writes the events through {@link #getProducerHandler()}, and the typed
+ * scalars through {@link #getProducerTypedScalarHandler()}, and finishes
+ * with {@link #end()} or {@link #fail(Throwable)}. The consumer replays the events with
+ * {@link #replay(ContentHandler)} and calls {@link #cancel()} when it stops early, so
+ * that a waiting producer doesn't wait forever.
+ * <p/>
+ * The pipe is reusable, after both threads are done, by calling {@link #reset()}.
+ */
+public final class SaxEventPipe {
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private static final int START_ELEMENT = 0;
+
+	private static final int END_ELEMENT = 1;
+
+	private static final int CHARACTERS = 2;
+
+	private static final int END = 3;
+
+	private static final int FAILURE = 4;
+
+	private static final int TYPED_SCALAR = 5;
+
+	private static final int SPIN_LIMIT = 100;
+
+	private static final int YIELD_LIMIT = 200;
+
+	private static final long PARK_NANOS = 50_000;
+
+	/** The characters buffer of a slot is dropped on reset when it grew bigger than this. */
+	private static final int MAX_RETAINED_CHARS = 1024;
+
+	private final Slot[] slots;
+
+	private final int mask;
+
+	/** The number of slots that are written. Only incremented by the producer. */
+	private final AtomicLong writeCount = new AtomicLong();
+
+	/** The number of slots that are read. Only incremented by the consumer. */
+	private final AtomicLong readCount = new AtomicLong();
+
+	/** The producer's last view of {@link #readCount}. */
+	private long cachedReadCount;
+
+	/** The consumer's last view of {@link #writeCount}. */
+	private long cachedWriteCount;
+
+	private volatile boolean cancelled;
+
+	private final ProducerHandler producerHandler = new ProducerHandler();
+
+	/**
+	 * @param capacity The number of events that the pipe can hold. It is rounded up to
+	 *            a power of two.
+	 */
+	public SaxEventPipe(int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("'capacity' must be positive.");
+		}
+		int size = Integer.highestOneBit(capacity);
+		if(size < capacity) {
+			size <<= 1;
+		}
+		slots = new Slot[size];
+		for(int i = 0; i < size; i++) {
+			slots[i] = new Slot();
+		}
+		mask = size - 1;
+	}
+
+	/**
+	 * @return The number of events that the pipe can hold
+	 */
+	public int getCapacity() {
+		return slots.length;
+	}
+
+	/**
+	 * Prepares the pipe for the next parse. Must only be called when neither the
+	 * producer nor the consumer uses the pipe.
+	 */
+	public void reset() {
+		for(Slot slot : slots) {
+			slot.clear();
+		}
+		writeCount.set(0);
+		readCount.set(0);
+		cachedReadCount = 0;
+		cachedWriteCount = 0;
+		cancelled = false;
+	}
+
+	/**
+	 * @return The content handler to which the producer writes its events
+	 */
+	public ContentHandler getProducerHandler() {
+		return producerHandler;
+	}
+
+	/**
+	 * @return The handler to which the producer writes its typed scalars
+	 */
+	public TypedScalarHandler getProducerTypedScalarHandler() {
+		return producerHandler;
+	}
+
+	/**
+	 * Signals the consumer that the producer wrote all its events.
+	 */
+	public void end() throws SAXException {
+		claim().type = END;
+		publish();
+	}
+
+	/**
+	 * Signals the consumer that the producer failed. The consumer throws the failure
+	 * after it replayed the events before it. Nothing is written when the pipe is
+	 * cancelled, because then the consumer doesn't read anymore.
+	 */
+	public void fail(Throwable failure) {
+		if(cancelled) {
+			return;
+		}
+		try {
+			Slot slot = claim();
+			slot.type = FAILURE;
+			slot.failure = failure;
+			publish();
+		} catch (SAXException e) {
+			// Cancelled while waiting for a free slot
+		}
+	}
+
+	/**
+	 * Tells the producer to stop. The producer fails with a {@link SAXException} the
+	 * next time it writes an event.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return if the consumer cancelled the pipe
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Replays the events of the producer into the content handler, until the producer
+	 * ends or fails. The failure of the producer is thrown as is, if possible.
+	 */
+	public void replay(ContentHandler contentHandler) throws SAXException, IOException {
+		replay(contentHandler, null);
+	}
+
+	/**
+	 * Replays the events of the producer into the content handler and the typed scalars
+	 * into the typed scalar handler, until the producer ends or fails.
+	 *
+	 * @param typedScalarHandler <code>null</code> if the typed scalars are dropped
+	 */
+	public void replay(ContentHandler contentHandler, TypedScalarHandler typedScalarHandler) throws SAXException, IOException {
+		while(true) {
+			long read = readCount.get();
+			if(read == cachedWriteCount) {
+				int idleCount = 0;
+				while(read == (cachedWriteCount = writeCount.get())) {
+					idleCount = idle(idleCount);
+				}
+			}
+
+			Slot slot = slots[(int) read & mask];
+			switch(slot.type) {
+				case START_ELEMENT:
+					contentHandler.startElement(XMLConstants.NULL_NS_URI, slot.name, "", slot.attributes);
+					break;
+				case END_ELEMENT:
+					contentHandler.endElement(XMLConstants.NULL_NS_URI, slot.name, "");
+					break;
+				case CHARACTERS:
+					contentHandler.characters(slot.chars, 0, slot.length);
+					break;
+				case TYPED_SCALAR:
+					TypedScalar typedScalar = slot.typedScalar;
+					slot.typedScalar = null;
+					if(typedScalarHandler != null) {
+						typedScalarHandler.typedScalar(typedScalar);
+					}
+					break;
+				case END:
+					readCount.lazySet(read + 1);
+					return;
+				default:
+					Throwable failure = slot.failure;
+					slot.failure = null;
+					readCount.lazySet(read + 1);
+					throw rethrow(failure);
+			}
+			readCount.lazySet(read + 1);
+		}
+	}
+
+	private Slot claim() throws SAXException {
+		long written = writeCount.get();
+		if(written - cachedReadCount == slots.length) {
+			int idleCount = 0;
+			while(written - (cachedReadCount = readCount.get()) == slots.length) {
+				if(cancelled) {
+					throw new SAXException("The consumer of the SAX events stopped.");
+				}
+				idleCount = idle(idleCount);
+			}
+		}
+		if(cancelled) {
+			throw new SAXException("The consumer of the SAX events stopped.");
+		}
+		return slots[(int) written & mask];
+	}
+
+	private void publish() {
+		writeCount.lazySet(writeCount.get() + 1);
+	}
+
+	private static int idle(int idleCount) {
+		if(idleCount < SPIN_LIMIT) {
+			// Busy spin, the other thread is likely to be done within a few iterations
+		} else if(idleCount < YIELD_LIMIT) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		return idleCount + 1;
+	}
+
+	private static SAXException rethrow(Throwable failure) throws IOException {
+		if(failure instanceof SAXException) {
+			return (SAXException) failure;
+		}
+		if(failure instanceof IOException) {
+			throw (IOException) failure;
+		}
+		if(failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if(failure instanceof Error) {
+			throw (Error) failure;
+		}
+		return new SAXException((Exception) failure);
+	}
+
+	/**
+	 * Writes the events of the producer into the slots of the pipe. The attributes and
+	 * characters are copied, because the producer reuses its buffers.
+	 */
+	private final class ProducerHandler extends DefaultHandler implements TypedScalarHandler {
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+			Slot slot = claim();
+			slot.type = START_ELEMENT;
+			slot.name = localName;
+			slot.attributes.setAttributes(attributes);
+			publish();
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) throws SAXException {
+			Slot slot = claim();
+			slot.type = END_ELEMENT;
+			slot.name = localName;
+			publish();
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) throws SAXException {
+			Slot slot = claim();
+			slot.type = CHARACTERS;
+			if(slot.chars.length < length) {
+				slot.chars = new char[Math.max(length, slot.chars.length * 2)];
+			}
+			System.arraycopy(ch, start, slot.chars, 0, length);
+			slot.length = length;
+			publish();
+		}
+
+		@Override
+		public void typedScalar(TypedScalar typedScalar) throws SAXException {
+			Slot slot = claim();
+			slot.type = TYPED_SCALAR;
+			slot.typedScalar = typedScalar;
+			publish();
+		}
+	}
+
+	private static final class Slot {
+
+		private int type;
+
+		private String name;
+
+		private final AttributesImpl attributes = new AttributesImpl();
+
+		private char[] chars = new char[16];
+
+		private int length;
+
+		private Throwable failure;
+
+		private TypedScalar typedScalar;
+
+		private void clear() {
+			name = null;
+			attributes.clear();
+			failure = null;
+			typedScalar = null;
+			if(chars.length > MAX_RETAINED_CHARS) {
+				chars = new char[16];
+			}
+		}
+	}
+}
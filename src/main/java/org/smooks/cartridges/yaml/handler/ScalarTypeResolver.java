@@ -0,0 +1,136 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.handler;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.constructor.Construct;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.Mark;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+import org.xml.sax.SAXParseException;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Resolves the types of scalars and constructs their typed values, in the same way as
+ * SnakeYAML does when it loads a document: a scalar with a tag has the type of its tag
+ * and the type of a plain scalar without a tag is resolved from its value, so that
+ * <code>1</code> is an <code>int</code> and <code>"1"</code> is a <code>str</code>.
+ * <p/>
+ * A resolver is used by one parse at a time.
+ */
+public class ScalarTypeResolver {
+
+	private static final Set<Tag> SCALAR_TAGS = new HashSet<>(Arrays.asList(
+			Tag.BOOL, Tag.INT, Tag.FLOAT, Tag.NULL, Tag.TIMESTAMP, Tag.BINARY, Tag.STR));
+
+	private final Resolver resolver = new Resolver();
+
+	private final ScalarConstructor constructor;
+
+	public ScalarTypeResolver(LoaderOptions loaderOptions) {
+		constructor = new ScalarConstructor(loaderOptions);
+	}
+
+	/**
+	 * @return The tag of the scalar
+	 */
+	public Tag resolve(ScalarEvent event) {
+		String tag = event.getTag();
+		if(tag == null || tag.equals("!")) {
+			return resolver.resolve(NodeId.scalar, event.getValue(), event.getImplicit().canOmitTagInPlainScalar());
+		}
+		return new Tag(tag);
+	}
+
+	/**
+	 * @return The name of the YAML type of the tag, like <code>int</code>, or the tag itself
+	 * 		if it isn't a YAML type
+	 */
+	public static String getTypeName(Tag tag) {
+		return tag.startsWith(Tag.PREFIX) ? tag.getValue().substring(Tag.PREFIX.length()) : tag.getValue();
+	}
+
+	/**
+	 * Constructs the value of a scalar. A scalar with a tag that doesn't have a scalar YAML
+	 * type keeps its text as value.
+	 *
+	 * @param event The scalar
+	 * @param tag The tag of {@link #resolve(ScalarEvent)}
+	 * @throws SAXParseException The text of the scalar isn't a value of the type
+	 */
+	public Object construct(ScalarEvent event, Tag tag) throws SAXParseException {
+		if(!SCALAR_TAGS.contains(tag) || tag.equals(Tag.STR)) {
+			return event.getValue();
+		}
+		try {
+			return constructor.construct(new ScalarNode(tag, event.getValue(), event.getStartMark(), event.getEndMark(), event.getScalarStyle()));
+		} catch (YAMLException | NumberFormatException e) {
+			Mark mark = event.getStartMark();
+			throw new SAXParseException("The scalar '" + event.getValue() + "' isn't a valid '" + getTypeName(tag) + "': " + e.getMessage(),
+					null, null, mark != null ? mark.getLine() : -1, mark != null ? mark.getColumn() : -1, e);
+		}
+	}
+
+	/**
+	 * Gives access to the scalar constructors of SnakeYAML.
+	 */
+	private static final class ScalarConstructor extends SafeConstructor {
+
+		private ScalarConstructor(LoaderOptions loaderOptions) {
+			super(loaderOptions);
+		}
+
+		private Object construct(ScalarNode node) {
+			Construct construct = yamlConstructors.get(node.getTag());
+			return construct.construct(node);
+		}
+	}
+}
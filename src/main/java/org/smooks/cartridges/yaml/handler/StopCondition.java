@@ -0,0 +1,121 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.handler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decides when the rest of the YAML stream isn't needed anymore: when every path has
+ * been produced, or when a number of documents has been produced.
+ * <p/>
+ * The paths have the syntax of the {@link PathProjection} paths. A path is produced
+ * when the end of the first element that matches it is produced. Elements that are
+ * skipped by the projection aren't produced, so they don't count.
+ */
+public final class StopCondition {
+
+	private final PathProjection[] paths;
+
+	private final List<String> pathNames;
+
+	private final int maxDocuments;
+
+	private StopCondition(PathProjection[] paths, List<String> pathNames, int maxDocuments) {
+		this.paths = paths;
+		this.pathNames = pathNames;
+		this.maxDocuments = maxDocuments;
+	}
+
+	/**
+	 * Compiles the stop condition.
+	 *
+	 * @param paths The element paths that must be produced, or an empty collection if the
+	 *            stop doesn't depend on the paths
+	 * @param maxDocuments The number of documents after which to stop or {@link Integer#MAX_VALUE}
+	 *            if the stop doesn't depend on the number of documents
+	 * @return The stop condition
+	 * @throws IllegalArgumentException If a path is empty or has an empty step or if the
+	 *             number of documents isn't positive
+	 */
+	public static StopCondition compile(Collection<String> paths, int maxDocuments) {
+		if (maxDocuments < 1) {
+			throw new IllegalArgumentException("The number of documents to stop after must be positive, but is " + maxDocuments + ".");
+		}
+		PathProjection[] compiledPaths = new PathProjection[paths.size()];
+		List<String> pathNames = new ArrayList<>();
+		int i = 0;
+		for (String path : paths) {
+			compiledPaths[i++] = PathProjection.compile(Collections.singletonList(path));
+			pathNames.add(path.trim());
+		}
+		return new StopCondition(compiledPaths, Collections.unmodifiableList(pathNames), maxDocuments);
+	}
+
+	/**
+	 * @return The paths that must be produced, as they were compiled
+	 */
+	public List<String> getPaths() {
+		return pathNames;
+	}
+
+	/**
+	 * @return The number of documents after which to stop
+	 */
+	public int getMaxDocuments() {
+		return maxDocuments;
+	}
+
+	int getPathCount() {
+		return paths.length;
+	}
+
+	/**
+	 * @return The state before the document element of a path
+	 */
+	PathProjection.State getStartState(int pathIndex) {
+		return paths[pathIndex].getStartState();
+	}
+}
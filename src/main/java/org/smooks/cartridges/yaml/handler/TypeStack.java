@@ -0,0 +1,95 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.handler;
+
+import java.util.Arrays;
+
+/**
+ * A growable, unsynchronized stack of the YAML structure types. A mapping
+ * or sequence is a single bit, so that nothing is boxed.
+ *
+ * @see NameStack
+ */
+final class TypeStack {
+
+	private long[] bits = new long[1];
+
+	private int size;
+
+	void push(boolean sequence) {
+		int index = size >>> 6;
+		if(index == bits.length) {
+			bits = Arrays.copyOf(bits, index << 1);
+		}
+		long mask = 1L << size;
+		if(sequence) {
+			bits[index] |= mask;
+		} else {
+			bits[index] &= ~mask;
+		}
+		size++;
+	}
+
+	void pop() {
+		size--;
+	}
+
+	/**
+	 * @return <code>true</code> if the top of the stack is a sequence
+	 */
+	boolean peekIsSequence() {
+		int top = size - 1;
+		return (bits[top >>> 6] & (1L << top)) != 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Removes the types above the given size.
+	 */
+	void truncate(int newSize) {
+		size = newSize;
+	}
+}
@@ -43,19 +43,32 @@
 package org.smooks.cartridges.yaml.handler;
 
 import org.smooks.cartridges.yaml.ElementNameFormatter;
+import org.smooks.cartridges.yaml.parser.BlockScalar;
+import org.smooks.cartridges.yaml.parser.EventSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
 import org.yaml.snakeyaml.events.AliasEvent;
 import org.yaml.snakeyaml.events.CollectionStartEvent;
 import org.yaml.snakeyaml.events.Event;
 import org.yaml.snakeyaml.events.Event.ID;
 import org.yaml.snakeyaml.events.ScalarEvent;
 
-import java.util.Stack;
+import java.util.Arrays;
 
 /**
  * Takes a iterable yaml event stream and handles the events of the stream.
+ * <p/>
+ * The handler isn't thread safe. Its name and type stacks are reused by every
+ * call of {@link #handle(EventHandler, Iterable)}, including the nested calls that
+ * replay the events of an anchor. A parser that pushes its events, instead of
+ * providing an iterable stream, writes them to a {@link Dispatcher}.
+ * <p/>
+ * With a {@link PathProjection} the subtrees of the elements that the projection
+ * doesn't need are skipped. Their key names aren't formatted and they don't result in
+ * SAX events. They are only handed to {@link EventHandler#skippedEvent(Event)}, so that
+ * the anchors in them can still be resolved.
  *
  * @author maurice_zeijen
  */
@@ -63,80 +76,319 @@ public class YamlEventStreamHandler {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(YamlEventStreamHandler.class);
 
-    private static enum Type {
-    	MAPPING,
-    	SEQUENCE
-    }
-
 	private final ElementNameFormatter nameFormatter;
 
 	private final String arrayElementName;
 
 	private String documentName;
 
+	private final int nestingDepthLimit;
+
+	private PathProjection projection;
+
+	private final NameStack elementNameStack = new NameStack();
+
+	private final TypeStack typeStack = new TypeStack();
+
+	/**
+	 * The projection states of the open mappings and sequences and of the aliases that
+	 * are being resolved.
+	 */
+	private PathProjection.State[] stateStack = new PathProjection.State[16];
+
+	private int stateStackSize;
+
+	private StopCondition stopCondition;
+
+	/**
+	 * The states of the paths of the stop condition, for every entry of the state stack.
+	 */
+	private PathProjection.State[] stopStateStack;
+
+	private boolean[] producedPaths;
+
+	private int producedPathCount;
+
+	private int documentCount;
+
+	/**
+	 * The number of events of the YAML stream by event type, without the events that are
+	 * replayed for the aliases.
+	 */
+	private final long[] eventCounts = new long[ID.values().length];
+
+	private int maxDepth;
+
+	/**
+	 * The dispatchers by the nesting level of their call, which are reused by the next
+	 * calls at the same level.
+	 */
+	private Dispatcher[] dispatchers = new Dispatcher[4];
+
+	private int openDispatcherCount;
+
 	public YamlEventStreamHandler(ElementNameFormatter nameFormatter, String documentName, String arrayElementName) {
+		this(nameFormatter, documentName, arrayElementName, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param nestingDepthLimit The maximum depth of nested mappings and sequences. The
+	 *            structures that are replayed from an anchor count as well.
+	 */
+	public YamlEventStreamHandler(ElementNameFormatter nameFormatter, String documentName, String arrayElementName, int nestingDepthLimit) {
+		this(nameFormatter, documentName, arrayElementName, nestingDepthLimit, null);
+	}
+
+	/**
+	 * @param projection The projection of the needed elements or <code>null</code> if all
+	 *            the elements are needed
+	 */
+	public YamlEventStreamHandler(ElementNameFormatter nameFormatter, String documentName, String arrayElementName, int nestingDepthLimit, PathProjection projection) {
 		this.nameFormatter = nameFormatter;
 		this.arrayElementName = arrayElementName;
 		this.documentName = documentName;
+		this.nestingDepthLimit = nestingDepthLimit;
+		this.projection = projection;
+	}
+
+	/**
+	 * @param projection The projection of the needed elements or <code>null</code> if all
+	 *            the elements are needed. It must not be changed while events are handled.
+	 */
+	public void setProjection(PathProjection projection) {
+		this.projection = projection;
+	}
+
+	/**
+	 * @param stopCondition The condition on which the parse stops or <code>null</code> if
+	 *            the whole YAML stream is read
+	 */
+	public void setStopCondition(StopCondition stopCondition) {
+		this.stopCondition = stopCondition;
+		if(stopCondition != null && stopCondition.getPathCount() > 0) {
+			stopStateStack = new PathProjection.State[stateStack.length * stopCondition.getPathCount()];
+			producedPaths = new boolean[stopCondition.getPathCount()];
+		} else {
+			stopStateStack = null;
+			producedPaths = null;
+		}
+		// The dispatchers have room for the states of the paths of the stop condition
+		dispatchers = new Dispatcher[dispatchers.length];
+		openDispatcherCount = 0;
+		reset();
 	}
 
+	/**
+	 * Prepares the handler for the next parse.
+	 */
+	public void reset() {
+		if(producedPaths != null) {
+			Arrays.fill(producedPaths, false);
+		}
+		producedPathCount = 0;
+		documentCount = 0;
+		Arrays.fill(eventCounts, 0);
+		maxDepth = 0;
+	}
+
+	/**
+	 * @param id The event type
+	 * @return The number of events of the type in the YAML stream since the last reset,
+	 *         without the events that are replayed for the aliases
+	 */
+	public long getEventCount(ID id) {
+		return eventCounts[id.ordinal()];
+	}
+
+	/**
+	 * @return The maximum depth of the nested mappings and sequences since the last
+	 *         reset, including the skipped and the replayed structures
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @throws ParseStoppedException If the stop condition is met. The remaining events
+	 *             aren't read.
+	 */
 	public void handle(EventHandler eventHandler, Iterable<Event> yamlEventStream) throws SAXException {
+		Dispatcher dispatcher = open(eventHandler);
+		try {
+			for (Event e : yamlEventStream) {
+				dispatcher.event(e);
+			}
+		} finally {
+			dispatcher.close();
+		}
+	}
+
+	/**
+	 * Opens a dispatcher to which the events are pushed one by one, for a parser that
+	 * produces the events itself instead of providing an iterable stream. The
+	 * dispatcher must be closed when the parser is done, also when the parse failed.
+	 */
+	public Dispatcher open(EventHandler eventHandler) {
+		if(openDispatcherCount == dispatchers.length) {
+			dispatchers = Arrays.copyOf(dispatchers, openDispatcherCount << 1);
+		}
+		Dispatcher dispatcher = dispatchers[openDispatcherCount];
+		if(dispatcher == null) {
+			dispatcher = new Dispatcher(openDispatcherCount);
+			dispatchers[openDispatcherCount] = dispatcher;
+		}
+		openDispatcherCount++;
+
+		// A nested call only sees the part of the stacks that it pushed itself
+		dispatcher.open(eventHandler, elementNameStack.size(), typeStack.size(), stateStackSize);
+		return dispatcher;
+	}
+
+	/**
+	 * Handles the events of one call of {@link YamlEventStreamHandler#handle(EventHandler, Iterable)}
+	 * or one {@link YamlEventStreamHandler#open(EventHandler)}. A dispatcher is reused by the
+	 * next call at the same nesting level after it is closed.
+	 */
+	public final class Dispatcher implements EventSink {
+
+		/** The nesting level of the call, which is the index in the dispatchers. */
+		private final int index;
+
+		private EventHandler eventHandler;
+
+		private int nameBase;
+
+		private int typeBase;
+
+		private int stateBase;
+
+		private boolean isNextElementName = true;
+
+		private boolean outputStructAsElement = false;
+
+		/**
+		 * The key of which the name event is handed to the event handler when it is
+		 * known if its value is needed.
+		 */
+		private ScalarEvent pendingNameEvent;
+
+		/**
+		 * The projection state of the value of the last key or of the document.
+		 */
+		private PathProjection.State pendingState;
 
-		Stack<String> elementNameStack = new Stack<String>();
-		Stack<Type> typeStack = new Stack<Type>();
+		/**
+		 * The states of the paths of the stop condition of the next node, or
+		 * <code>null</code> if the stop condition has no paths.
+		 */
+		private final PathProjection.State[] pendingStopStates;
 
-		boolean isNextElementName = true;
-		boolean outputStructAsElement = false;
-		for (Event e : yamlEventStream) {
+		/**
+		 * If the events come from the YAML stream instead of a replay of an alias. An
+		 * alias always pushes its state before it replays the events.
+		 */
+		private boolean countEvents;
 
+		private boolean skipping;
+
+		private int skipDepth;
+
+		private Dispatcher(int index) {
+			this.index = index;
+			this.pendingStopStates = stopStateStack != null ? new PathProjection.State[stopCondition.getPathCount()] : null;
+		}
+
+		private void open(EventHandler eventHandler, int nameBase, int typeBase, int stateBase) {
+			this.eventHandler = eventHandler;
+			this.nameBase = nameBase;
+			this.typeBase = typeBase;
+			this.stateBase = stateBase;
+			this.countEvents = stateBase == 0;
+			isNextElementName = true;
+			outputStructAsElement = false;
+			pendingNameEvent = null;
+			pendingState = null;
+		}
+
+		/**
+		 * @throws ParseStoppedException If the stop condition is met
+		 */
+		public void event(Event e) throws SAXException {
 			if(LOGGER.isTraceEnabled()) {
 				LOGGER.trace("Event: " + e);
 			}
+			if(countEvents) {
+				eventCounts[e.getEventId().ordinal()]++;
+			}
 
-			if(e.is(ID.DocumentStart)) {
-				elementNameStack.push(documentName);
+			if(skipping) {
+				skip(e);
+			} else if(e.is(ID.DocumentStart)) {
+				PathProjection.State state = projection != null ? projection.getStartState().next(documentName) : PathProjection.MATCH;
+				if(state.isNoMatch()) {
+					skipping = true;
+				} else {
+					elementNameStack.push(documentName);
+					pendingState = state;
+					nextStopStates(documentName);
+				}
 
 				outputStructAsElement = true;
 			} else if(e.is(ID.Scalar)) {
 				ScalarEvent es = (ScalarEvent) e;
 
-				if(isNextElementName && !lastTypeIsArray(typeStack)) {
+				if(isNextElementName && !lastTypeIsArray(typeBase)) {
 					String name = nameFormatter.format(es.getValue());
 
 					if(LOGGER.isTraceEnabled()) {
 		        		LOGGER.trace("Element name: " + name);
 		        	}
 
-					elementNameStack.push(name);
-
-					eventHandler.addNameEvent(es, name);
-
-					isNextElementName = false;
+					PathProjection.State state = peekState().next(name);
+					if(state.isNoMatch()) {
+						eventHandler.skippedEvent(es);
+						skipping = true;
+					} else {
+						elementNameStack.push(name);
+						pendingNameEvent = es;
+						pendingState = state;
+						nextStopStates(name);
+
+						isNextElementName = false;
+					}
 				} else {
-					String elementName = typeStack.peek() == Type.SEQUENCE ? arrayElementName : elementNameStack.pop();
-
-		    		eventHandler.addValueEvent(es, elementName, es.getValue());
-
-		    		isNextElementName = true;
+					value(es, null);
 				}
 			} else if(e.is(ID.MappingStart) || e.is(ID.SequenceStart)) {
 				CollectionStartEvent cse = (CollectionStartEvent) e;
 
+				PathProjection.State state = nextState();
+				if(state.isNoMatch()) {
+					skipping = true;
+					skip(e);
+					return;
+				}
+
+				checkNestingDepth(e, typeStack.size());
+
+				flushNameEvent();
 				if(outputStructAsElement) {
-					String elementName = lastTypeIsArray(typeStack) ? arrayElementName : elementNameStack.peek();
+					String elementName = lastTypeIsArray(typeBase) ? arrayElementName : elementNameStack.peek();
 					eventHandler.startStructureEvent(cse, elementName);
 				}
 
-				typeStack.push(e.is(ID.SequenceStart) ? Type.SEQUENCE : Type.MAPPING);
+				typeStack.push(e.is(ID.SequenceStart));
+				pushState(state, pendingStopStates);
 
 				outputStructAsElement = true;
 				isNextElementName = true;
 			} else if(e.is(ID.MappingEnd) || e.is(ID.SequenceEnd)) {
 				typeStack.pop();
+				int level = --stateStackSize;
 
-				boolean typeStackPeekIsArray = lastTypeIsArray(typeStack);
+				boolean typeStackPeekIsArray = lastTypeIsArray(typeBase);
 
-				if(!elementNameStack.empty() && !typeStackPeekIsArray) {
+				if(elementNameStack.size() > nameBase && !typeStackPeekIsArray) {
 					eventHandler.endStructureEvent(e, elementNameStack.pop());
 				}
 
@@ -144,19 +396,250 @@ public class YamlEventStreamHandler {
 					eventHandler.endStructureEvent(e, arrayElementName);
 				}
 
+				if(stopStateStack != null) {
+					produced(stopStateStack, level * pendingStopStates.length, level - 1);
+				}
+			} else if(e.is(ID.DocumentEnd)) {
+				eventHandler.endDocumentEvent(e);
+
+				if(stopCondition != null && ++documentCount >= stopCondition.getMaxDocuments()) {
+					throw ParseStoppedException.INSTANCE;
+				}
 			} else if(e.is(ID.Alias)) {
-				String elementName = lastTypeIsArray(typeStack) ? arrayElementName : elementNameStack.pop();
+				PathProjection.State state = nextState();
+				if(state.isNoMatch()) {
+					eventHandler.skippedEvent(e);
+				} else {
+					String elementName = lastTypeIsArray(typeBase) ? arrayElementName : elementNameStack.pop();
+
+					flushNameEvent();
+
+					// The resolved data structure of the alias is projected from the alias element
+					pushState(state, pendingStopStates);
+					try {
+						eventHandler.addAliasEvent((AliasEvent) e, elementName);
+						if(stopStateStack != null) {
+							int level = stateStackSize - 1;
+							produced(stopStateStack, level * pendingStopStates.length, level - 1);
+						}
+					} finally {
+						stateStackSize--;
+					}
+				}
+
+				isNextElementName = true;
+			}
+		}
+
+		/**
+		 * Writes the value of a large block scalar in chunks, if it is the value of a
+		 * key or a sequence entry.
+		 *
+		 * @throws ParseStoppedException If the stop condition is met
+		 */
+		@Override
+		public void blockScalar(BlockScalar blockScalar) throws SAXException {
+			if(!skipping && isNextElementName && !lastTypeIsArray(typeBase)) {
+				// The scalar of the document, which is handled like a key
+				event(blockScalar.toEvent());
+				return;
+			}
+
+			if(LOGGER.isTraceEnabled()) {
+				LOGGER.trace("Block scalar: " + blockScalar.getTextLength() + " chars");
+			}
+			if(countEvents) {
+				eventCounts[ID.Scalar.ordinal()]++;
+			}
+
+			if(skipping) {
+				eventHandler.skippedBlockScalar(blockScalar);
+				if(skipDepth == 0) {
+					skipping = false;
+					isNextElementName = true;
+				}
+			} else {
+				value(null, blockScalar);
+			}
+		}
+
+		/**
+		 * Handles the scalar that is the value of a key or a sequence entry.
+		 *
+		 * @param es The scalar or <code>null</code> if it is a block scalar
+		 * @param blockScalar The block scalar of which the value is written in chunks
+		 */
+		private void value(ScalarEvent es, BlockScalar blockScalar) throws SAXException {
+			boolean isArrayElement = lastTypeIsArray(typeBase);
+
+			// A scalar has no descendants that can match the rest of a path
+			if(nextState().isMatch()) {
+				String elementName = isArrayElement ? arrayElementName : elementNameStack.pop();
+
+				flushNameEvent();
+				if(blockScalar != null) {
+					eventHandler.addBlockScalar(blockScalar, elementName);
+				} else {
+					eventHandler.addValueEvent(es, elementName, es.getValue());
+				}
+				if(pendingStopStates != null) {
+					produced(pendingStopStates, 0, stateStackSize - 1);
+				}
+			} else {
+				if(!isArrayElement) {
+					elementNameStack.pop();
+				}
+
+				skipNameEvent();
+				if(blockScalar != null) {
+					eventHandler.skippedBlockScalar(blockScalar);
+				} else {
+					eventHandler.skippedEvent(es);
+				}
+			}
+
+			isNextElementName = true;
+		}
+
+		/**
+		 * Removes what this dispatcher left on the stacks, when the events ended early.
+		 */
+		public void close() {
+			elementNameStack.truncate(nameBase);
+			typeStack.truncate(typeBase);
+			stateStackSize = stateBase;
+			skipping = false;
+			skipDepth = 0;
+			eventHandler = null;
+			pendingNameEvent = null;
+			openDispatcherCount = index;
+		}
+
+		/**
+		 * Skips the events of the node that isn't needed, without formatting names or
+		 * producing SAX events.
+		 */
+		private void skip(Event e) throws SAXException {
+			eventHandler.skippedEvent(e);
 
-				eventHandler.addAliasEvent((AliasEvent) e, elementName);
+			if(e.is(ID.MappingStart) || e.is(ID.SequenceStart)) {
+				checkNestingDepth(e, typeStack.size() + skipDepth);
+				skipDepth++;
+			} else if(e.is(ID.MappingEnd) || e.is(ID.SequenceEnd)) {
+				skipDepth--;
+			}
 
+			if(skipDepth == 0) {
+				skipping = false;
 				isNextElementName = true;
 			}
+		}
 
+		/**
+		 * @return the projection state of the next node
+		 */
+		private PathProjection.State nextState() {
+			if(lastTypeIsArray(typeBase)) {
+				nextStopStates(arrayElementName);
+				return peekState().next(arrayElementName);
+			}
+			PathProjection.State state = pendingState;
+			if(state != null) {
+				pendingState = null;
+				return state;
+			}
+			// The root of a data structure that is replayed for an alias
+			nextStopStates(null);
+			return peekState();
+		}
+
+		/**
+		 * Sets the states of the paths of the stop condition of the next node.
+		 *
+		 * @param name The element name of the node or <code>null</code> for the root of
+		 *            a data structure that is replayed for an alias
+		 */
+		private void nextStopStates(String name) {
+			if(pendingStopStates != null) {
+				for(int i = 0; i < pendingStopStates.length; i++) {
+					PathProjection.State parentState = stopState(stateStackSize - 1, i);
+					pendingStopStates[i] = name != null ? parentState.next(name) : parentState;
+				}
+			}
+		}
+
+		/**
+		 * Marks the paths that a node matched as produced, now that its end is produced.
+		 *
+		 * @param states The states of the paths of the stop condition of the node
+		 * @param offset The index of the state of the first path in the states
+		 * @param parentLevel The level of the parent of the node on the state stack
+		 * @throws ParseStoppedException If all the paths are produced
+		 */
+		private void produced(PathProjection.State[] states, int offset, int parentLevel) throws ParseStoppedException {
+			for(int i = 0; i < pendingStopStates.length; i++) {
+				if(!producedPaths[i] && states[offset + i].isMatch() && !stopState(parentLevel, i).isMatch()) {
+					producedPaths[i] = true;
+					producedPathCount++;
+				}
+			}
+			if(producedPathCount == producedPaths.length) {
+				throw ParseStoppedException.INSTANCE;
+			}
+		}
+
+		private PathProjection.State stopState(int level, int pathIndex) {
+			return level >= 0 ? stopStateStack[level * pendingStopStates.length + pathIndex] : stopCondition.getStartState(pathIndex);
+		}
+
+		private PathProjection.State peekState() {
+			return stateStackSize > 0 ? stateStack[stateStackSize - 1] : PathProjection.MATCH;
+		}
+
+		private void flushNameEvent() throws SAXException {
+			if(pendingNameEvent != null) {
+				eventHandler.addNameEvent(pendingNameEvent, elementNameStack.peek());
+				pendingNameEvent = null;
+			}
+		}
+
+		private void skipNameEvent() throws SAXException {
+			if(pendingNameEvent != null) {
+				eventHandler.skippedEvent(pendingNameEvent);
+				pendingNameEvent = null;
+			}
+		}
+	}
+
+	private void checkNestingDepth(Event e, int depth) throws SAXParseException {
+		if(depth >= maxDepth) {
+			maxDepth = depth + 1;
+		}
+		if(depth >= nestingDepthLimit) {
+			throw new SAXParseException(
+					"The mappings and sequences are nested deeper than the nesting depth limit of " + nestingDepthLimit + ".",
+					null,
+					null,
+					e.getStartMark() != null ? e.getStartMark().getLine() : -1,
+					e.getStartMark() != null ? e.getStartMark().getColumn() : -1);
+		}
+	}
+
+	private void pushState(PathProjection.State state, PathProjection.State[] stopStates) {
+		if(stateStackSize == stateStack.length) {
+			stateStack = Arrays.copyOf(stateStack, stateStackSize << 1);
+			if(stopStateStack != null) {
+				stopStateStack = Arrays.copyOf(stopStateStack, stopStateStack.length << 1);
+			}
+		}
+		if(stopStates != null) {
+			System.arraycopy(stopStates, 0, stopStateStack, stateStackSize * stopStates.length, stopStates.length);
 		}
+		stateStack[stateStackSize++] = state;
 	}
 
-    private boolean lastTypeIsArray(Stack<Type> typeStack) {
-    	return !typeStack.empty() && typeStack.peek() == Type.SEQUENCE;
+    private boolean lastTypeIsArray(int typeBase) {
+    	return typeStack.size() > typeBase && typeStack.peekIsSequence();
     }
 
 
@@ -42,11 +42,17 @@
  */
 package org.smooks.cartridges.yaml.handler;
 
+import java.util.Arrays;
+
 import javax.xml.XMLConstants;
 
+import org.smooks.cartridges.yaml.TypedScalar;
+import org.smooks.cartridges.yaml.parser.BlockScalar;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.AttributesImpl;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.Tag;
 
 /**
  * Converts yaml events into sax events.
@@ -62,7 +68,13 @@ public class YamlToSaxHandler {
 
 	private static final String ATTRIBUTE_ID = "ID";
 
-	private final ContentHandler contentHandler;
+	private static final String ATTRIBUTE_CDATA = "CDATA";
+
+	private static final int INITIAL_CHAR_BUFFER_SIZE = 256;
+
+	private static final int MAX_CHAR_BUFFER_SIZE = 64 * 1024;
+
+	private ContentHandler contentHandler;
 
 	private final String anchorAttributeName;
 
@@ -70,66 +82,232 @@ public class YamlToSaxHandler {
 
 	private final boolean indent;
 
+	/**
+	 * <code>null</code> if the scalars aren't typed.
+	 */
+	private final ScalarTypeResolver scalarTypeResolver;
+
+	/**
+	 * <code>null</code> if the scalar elements don't get a type attribute.
+	 */
+	private final String typeAttributeName;
+
+	/**
+	 * <code>null</code> if the typed values of the scalars aren't published.
+	 */
+	private TypedScalarHandler typedScalarHandler;
+
 	private int elementLevel = 0;
 
+	/**
+	 * The names of the open element structures, so that they can be ended when the parse
+	 * stops early.
+	 */
+	private String[] elementNames = new String[16];
+
+	private long elementCount;
+
+	/**
+	 * The attributes of the element with an anchor or alias. SAX attributes are only
+	 * valid during the startElement callback, so a single instance is reused.
+	 */
+	private final AttributesImpl attributes = new AttributesImpl();
+
+	/**
+	 * The buffer that scalar values are copied into for {@link ContentHandler#characters(char[], int, int)}.
+	 * It grows with the values up to {@link #MAX_CHAR_BUFFER_SIZE}. Longer values are emitted in chunks.
+	 */
+	private char[] charBuffer = new char[INITIAL_CHAR_BUFFER_SIZE];
+
 	private static char[] INDENT = new String("\n\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t").toCharArray();
 
 	public YamlToSaxHandler(ContentHandler contentHandler, String anchorAttributeName, String aliasAttributeName, boolean indent) {
+		this(contentHandler, anchorAttributeName, aliasAttributeName, indent, null, null);
+	}
+
+	/**
+	 * @param scalarTypeResolver The resolver of the types of the scalars or <code>null</code>
+	 *            if the scalars aren't typed
+	 * @param typeAttributeName The name of the attribute with the type of a scalar element
+	 *            or <code>null</code> if the scalar elements don't get a type attribute
+	 */
+	public YamlToSaxHandler(ContentHandler contentHandler, String anchorAttributeName, String aliasAttributeName, boolean indent,
+							ScalarTypeResolver scalarTypeResolver, String typeAttributeName) {
 		super();
 		this.contentHandler = contentHandler;
 		this.anchorAttributeName = anchorAttributeName;
 		this.aliasAttributeName = aliasAttributeName;
 		this.indent = indent;
+		this.scalarTypeResolver = scalarTypeResolver;
+		this.typeAttributeName = typeAttributeName;
+	}
+
+	/**
+	 * Prepares the handler for the next parse.
+	 *
+	 * @param contentHandler The content handler of the next parse
+	 */
+	public void reset(ContentHandler contentHandler) {
+		reset(contentHandler, null);
+	}
+
+	/**
+	 * Prepares the handler for the next parse.
+	 *
+	 * @param contentHandler The content handler of the next parse
+	 * @param typedScalarHandler The handler of the typed values of the scalars or <code>null</code>
+	 *            if they aren't published. Only used if the handler has a {@link ScalarTypeResolver}.
+	 */
+	public void reset(ContentHandler contentHandler, TypedScalarHandler typedScalarHandler) {
+		this.contentHandler = contentHandler;
+		this.typedScalarHandler = typedScalarHandler;
+		Arrays.fill(elementNames, 0, elementLevel, null);
+		elementLevel = 0;
+		elementCount = 0;
+		attributes.clear();
 	}
 
 	public void startElementStructure(String name, String anchorName, boolean addAnchorAttribute) throws SAXException {
 
 		indent();
 
-		startElement(name, anchorName, addAnchorAttribute);
+		startElement(name, anchorName, addAnchorAttribute, null);
 
-		elementLevel++;
+		if (elementLevel == elementNames.length) {
+			elementNames = Arrays.copyOf(elementNames, elementLevel << 1);
+		}
+		elementNames[elementLevel++] = name;
 
 	}
 
 	public void endElementStructure(String name) throws SAXException {
-		elementLevel--;
+		elementNames[--elementLevel] = null;
 
 		indent();
 
 		endElement(name);
 	}
 
+	/**
+	 * Ends the open element structures until the given number of element structures is open.
+	 *
+	 * @param level The number of element structures that stay open
+	 */
+	public void endElementStructures(int level) throws SAXException {
+		while (elementLevel > level) {
+			endElementStructure(elementNames[elementLevel - 1]);
+		}
+	}
+
 
 	public void addContentElement(String name, String value, String anchorName, boolean addAnchorAttribute) throws SAXException {
+		addContentElement(name, value, anchorName, addAnchorAttribute, null);
+	}
+
+	/**
+	 * Adds the element of a scalar, with its type if the scalars are typed.
+	 */
+	public void addScalarElement(String name, ScalarEvent event, String anchorName, boolean addAnchorAttribute) throws SAXException {
+		String typeName = null;
+		if (scalarTypeResolver != null) {
+			Tag tag = scalarTypeResolver.resolve(event);
+			typeName = ScalarTypeResolver.getTypeName(tag);
+			if (typedScalarHandler != null) {
+				typedScalarHandler.typedScalar(new TypedScalar(name, typeName, scalarTypeResolver.construct(event, tag)));
+			}
+		}
+		addContentElement(name, event.getValue(), anchorName, addAnchorAttribute, typeAttributeName != null ? typeName : null);
+		if (typedScalarHandler != null) {
+			// The typed scalar only belongs to the element that is ended now
+			typedScalarHandler.typedScalar(null);
+		}
+	}
+
+	/**
+	 * Adds the element of a large block scalar, of which the value is written in chunks
+	 * of the largest char buffer. When the typed values are published, the value is
+	 * created as a whole.
+	 */
+	public void addBlockScalarElement(String name, BlockScalar blockScalar, String anchorName, boolean addAnchorAttribute) throws SAXException {
+		if (typedScalarHandler != null) {
+			addScalarElement(name, blockScalar.toEvent(), anchorName, addAnchorAttribute);
+			return;
+		}
+
 		indent();
 
-		startElement(name, anchorName, addAnchorAttribute);
+		// A block scalar without a tag is always a string
+		startElement(name, anchorName, addAnchorAttribute, typeAttributeName != null ? ScalarTypeResolver.getTypeName(Tag.STR) : null);
+
+		if (charBuffer.length < MAX_CHAR_BUFFER_SIZE) {
+			charBuffer = new char[MAX_CHAR_BUFFER_SIZE];
+		}
+		blockScalar.writeTo(contentHandler, charBuffer);
+
+		endElement(name);
+	}
+
+	private void addContentElement(String name, String value, String anchorName, boolean addAnchorAttribute, String typeName) throws SAXException {
+		indent();
+
+		startElement(name, anchorName, addAnchorAttribute, typeName);
 
 		if (value != null && value.length() > 0) {
-			contentHandler.characters(value.toCharArray(), 0, value.length());
+			characters(value);
 		}
 
 		endElement(name);
 	}
 
-	private void startElement(String name, String anchorName, boolean addAnchorAttribute) throws SAXException {
-		AttributesImpl attributes;
-		if (anchorName == null) {
-			attributes = EMPTY_ATTRIBS;
+	/**
+	 * @return The number of elements that are started since the last reset
+	 */
+	public long getElementCount() {
+		return elementCount;
+	}
+
+	private void startElement(String name, String anchorName, boolean addAnchorAttribute, String typeName) throws SAXException {
+		elementCount++;
+		if (anchorName == null && typeName == null) {
+			contentHandler.startElement(XMLConstants.NULL_NS_URI, name, "", EMPTY_ATTRIBS);
 		} else {
-			attributes = new AttributesImpl();
+			attributes.clear();
+			if (anchorName != null) {
+				String attributeName = addAnchorAttribute ? anchorAttributeName : aliasAttributeName;
+				String attributeType = addAnchorAttribute ? ATTRIBUTE_ID : ATTRIBUTE_IDREF;
+
+				attributes.addAttribute(XMLConstants.NULL_NS_URI,
+						attributeName, attributeName, attributeType,
+						anchorName);
+			}
+			if (typeName != null) {
+				attributes.addAttribute(XMLConstants.NULL_NS_URI,
+						typeAttributeName, typeAttributeName, ATTRIBUTE_CDATA,
+						typeName);
+			}
+			try {
+				contentHandler.startElement(XMLConstants.NULL_NS_URI, name, "", attributes);
+			} finally {
+				attributes.clear();
+			}
+		}
+	}
 
-			String attributeName = addAnchorAttribute ? anchorAttributeName : aliasAttributeName;
-			String attributeType = addAnchorAttribute ? ATTRIBUTE_ID : ATTRIBUTE_IDREF;
-			if (addAnchorAttribute) {
+	private void characters(String value) throws SAXException {
+		int length = value.length();
+		if (length > charBuffer.length && charBuffer.length < MAX_CHAR_BUFFER_SIZE) {
+			charBuffer = new char[Math.min(Math.max(length, charBuffer.length << 1), MAX_CHAR_BUFFER_SIZE)];
+		}
 
+		for (int offset = 0, end; offset < length; offset = end) {
+			end = Math.min(offset + charBuffer.length, length);
+			if (end < length && Character.isHighSurrogate(value.charAt(end - 1))) {
+				// Don't split a surrogate pair over two chunks
+				end--;
 			}
-			attributes.addAttribute(XMLConstants.NULL_NS_URI,
-					attributeName, attributeName, attributeType,
-					anchorName);
+			value.getChars(offset, end, charBuffer, 0);
+			contentHandler.characters(charBuffer, 0, end - offset);
 		}
-		contentHandler.startElement(XMLConstants.NULL_NS_URI, name, "", attributes);
 	}
 
 	private void endElement(String name) throws SAXException {
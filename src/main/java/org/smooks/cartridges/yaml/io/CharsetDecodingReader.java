@@ -0,0 +1,202 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reader that decodes the bytes of a YAML stream directly with a
+ * {@link CharsetDecoder}. The encoding is detected with {@link YamlEncoding}.
+ * <p/>
+ * The char buffer and the decoder are kept between streams, so that a reader
+ * instance can be reused for many streams without allocating new buffers.
+ * Subclasses supply the bytes via {@link #nextBytes(ByteBuffer)}.
+ */
+public abstract class CharsetDecodingReader extends Reader {
+
+	private final CharBuffer chars;
+
+	private ByteBuffer bytes;
+
+	private CharsetDecoder decoder;
+
+	private boolean endOfInput;
+
+	private boolean flushed;
+
+	private long bytesRead;
+
+	/**
+	 * @param charBufferSize The size of the char buffer. At least two chars,
+	 *            so that a surrogate pair fits.
+	 */
+	protected CharsetDecodingReader(int charBufferSize) {
+		chars = CharBuffer.allocate(Math.max(charBufferSize, 2));
+		chars.flip();
+	}
+
+	/**
+	 * Starts reading a new stream. Detects the encoding and skips the byte
+	 * order mark.
+	 *
+	 * @param defaultCharset The charset to use when the encoding can't be
+	 *            detected from the stream.
+	 */
+	protected void start(Charset defaultCharset) throws IOException {
+		chars.clear();
+		chars.flip();
+		bytes = null;
+		endOfInput = false;
+		flushed = false;
+		bytesRead = 0;
+
+		ByteBuffer head = nextBytes(null);
+		while (head != null) {
+			bytes = head;
+			if (bytes.remaining() >= YamlEncoding.DETECTION_LENGTH) {
+				break;
+			}
+			head = nextBytes(bytes);
+		}
+		if (bytes == null) {
+			endOfInput = true;
+			bytes = ByteBuffer.allocate(0);
+		} else if (head == null) {
+			endOfInput = true;
+		}
+
+		YamlEncoding encoding = YamlEncoding.detect(bytes, defaultCharset);
+		bytes.position(bytes.position() + encoding.getBomLength());
+		bytesRead = encoding.getBomLength();
+
+		Charset charset = encoding.getCharset();
+		if (decoder == null || !decoder.charset().equals(charset)) {
+			decoder = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		} else {
+			decoder.reset();
+		}
+	}
+
+	/**
+	 * Provides the next bytes of the stream.
+	 *
+	 * @param current The buffer with the bytes that are not yet decoded, or
+	 *            <code>null</code> on the first call for a stream. The
+	 *            remaining bytes of this buffer must be available at the
+	 *            start of the returned buffer.
+	 * @return A buffer, ready for reading, with the remaining bytes of the
+	 *         current buffer followed by new bytes, or <code>null</code> if
+	 *         the end of the stream is reached. In that case the current
+	 *         buffer must still hold its remaining bytes.
+	 */
+	protected abstract ByteBuffer nextBytes(ByteBuffer current) throws IOException;
+
+	/**
+	 * @return The number of bytes of the current stream that are decoded, including the
+	 *         byte order mark
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!chars.hasRemaining() && !fillChars()) {
+			return -1;
+		}
+		int length = Math.min(len, chars.remaining());
+		chars.get(cbuf, off, length);
+		return length;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!chars.hasRemaining() && !fillChars()) {
+			return -1;
+		}
+		return chars.get();
+	}
+
+	private boolean fillChars() throws IOException {
+		if (flushed || decoder == null) {
+			return false;
+		}
+		chars.clear();
+		while (chars.position() == 0) {
+			int position = bytes.position();
+			CoderResult result = decoder.decode(bytes, chars, endOfInput);
+			bytesRead += bytes.position() - position;
+			if (result.isOverflow()) {
+				break;
+			}
+			if (endOfInput) {
+				decoder.flush(chars);
+				flushed = true;
+				break;
+			}
+			if (chars.position() > 0) {
+				break;
+			}
+			ByteBuffer next = nextBytes(bytes);
+			if (next == null) {
+				endOfInput = true;
+			} else {
+				bytes = next;
+			}
+		}
+		chars.flip();
+		return chars.hasRemaining();
+	}
+}
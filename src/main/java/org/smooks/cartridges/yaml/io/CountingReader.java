@@ -0,0 +1,107 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.io;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader that counts the chars that are read from the reader that it wraps. A counting
+ * reader can be reused for many streams.
+ */
+public class CountingReader extends Reader {
+
+	private Reader reader;
+
+	private long charsRead;
+
+	/**
+	 * Starts counting the chars of a new stream.
+	 *
+	 * @param reader The reader to count the chars of
+	 * @return This reader
+	 */
+	public CountingReader reset(Reader reader) {
+		this.reader = reader;
+		charsRead = 0;
+		return this;
+	}
+
+	/**
+	 * Drops the reference to the wrapped reader, without closing it.
+	 */
+	public void release() {
+		reader = null;
+		charsRead = 0;
+	}
+
+	/**
+	 * @return The number of chars that are read since the last reset
+	 */
+	public long getCharsRead() {
+		return charsRead;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		int read = reader.read(cbuf, off, len);
+		if (read > 0) {
+			charsRead += read;
+		}
+		return read;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int c = reader.read();
+		if (c >= 0) {
+			charsRead++;
+		}
+		return c;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
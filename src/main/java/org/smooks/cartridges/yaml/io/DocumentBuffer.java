@@ -0,0 +1,209 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.io;
+
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * The text of a document as it is read by the {@link YamlDocumentSplitter}. The chars are
+ * kept in fixed size segments, so that the buffer grows without copying what is already
+ * read and a big document takes about its own size on the heap. Only the first segments
+ * are kept for the next document when the buffer is cleared.
+ * <p/>
+ * The buffer isn't thread safe.
+ */
+public final class DocumentBuffer implements CharSequence {
+
+	private static final int SEGMENT_SHIFT = 14;
+
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+	private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	/** The number of segments that are kept when the buffer is cleared. */
+	private static final int RETAINED_SEGMENTS = 4;
+
+	private char[][] segments = new char[RETAINED_SEGMENTS][];
+
+	private int segmentCount;
+
+	private int length;
+
+	/**
+	 * Empties the buffer and releases the segments of a big document.
+	 */
+	public void clear() {
+		if (segments.length > RETAINED_SEGMENTS) {
+			segments = Arrays.copyOf(segments, RETAINED_SEGMENTS);
+			segmentCount = Math.min(segmentCount, RETAINED_SEGMENTS);
+		}
+		length = 0;
+	}
+
+	public void append(String s) {
+		int from = 0;
+		int to = s.length();
+		while (from < to) {
+			int offset = length & SEGMENT_MASK;
+			char[] segment = writableSegment();
+			int count = Math.min(to - from, SEGMENT_SIZE - offset);
+			s.getChars(from, from + count, segment, offset);
+			from += count;
+			length += count;
+		}
+	}
+
+	private char[] writableSegment() {
+		int index = length >>> SEGMENT_SHIFT;
+		if (index == segmentCount) {
+			if (index == segments.length) {
+				segments = Arrays.copyOf(segments, segments.length * 2);
+			}
+			segments[index] = new char[SEGMENT_SIZE];
+			segmentCount++;
+		}
+		return segments[index];
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+		}
+		return segments[index >>> SEGMENT_SHIFT][index & SEGMENT_MASK];
+	}
+
+	/**
+	 * @return The index of the first occurrence of the char from the index, or -1
+	 */
+	public int indexOf(char c, int fromIndex) {
+		for (int i = Math.max(fromIndex, 0); i < length; i++) {
+			if (segments[i >>> SEGMENT_SHIFT][i & SEGMENT_MASK] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return The index of the last occurrence of the char before or at the index, or -1
+	 */
+	public int lastIndexOf(char c, int fromIndex) {
+		for (int i = Math.min(fromIndex, length - 1); i >= 0; i--) {
+			if (segments[i >>> SEGMENT_SHIFT][i & SEGMENT_MASK] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Copies the chars from <code>start</code> to <code>end</code> into the destination,
+	 * like {@link String#getChars(int, int, char[], int)}.
+	 */
+	public void getChars(int start, int end, char[] dst, int dstBegin) {
+		if (start < 0 || start > end || end > length) {
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+		}
+		while (start < end) {
+			int offset = start & SEGMENT_MASK;
+			int count = Math.min(end - start, SEGMENT_SIZE - offset);
+			System.arraycopy(segments[start >>> SEGMENT_SHIFT], offset, dst, dstBegin, count);
+			start += count;
+			dstBegin += count;
+		}
+	}
+
+	/**
+	 * @return A string with the chars from <code>start</code> to <code>end</code>
+	 */
+	public String substring(int start, int end) {
+		if (start >= 0 && start <= end && end <= length && (start >>> SEGMENT_SHIFT) == ((end - 1) >>> SEGMENT_SHIFT)) {
+			return new String(segments[start >>> SEGMENT_SHIFT], start & SEGMENT_MASK, end - start);
+		}
+		char[] chars = new char[end - start];
+		getChars(start, end, chars, 0);
+		return new String(chars);
+	}
+
+	/**
+	 * @return A reader of the chars of the buffer, which is only valid while the buffer
+	 *         isn't changed
+	 */
+	public Reader newReader() {
+		return new Reader() {
+			private int position;
+
+			@Override
+			public int read(char[] cbuf, int off, int len) {
+				if (position == length) {
+					return len == 0 ? 0 : -1;
+				}
+				int count = Math.min(len, length - position);
+				getChars(position, position + count, cbuf, off);
+				position += count;
+				return count;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return substring(start, end);
+	}
+
+	@Override
+	public String toString() {
+		return substring(0, length);
+	}
+}
@@ -0,0 +1,121 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Decodes a YAML byte stream from an {@link InputStream}.
+ * <p/>
+ * The reader is reusable. Call {@link #reset(InputStream, Charset)} to start
+ * reading a new stream and {@link #release()} to drop the reference to the
+ * stream when done. The underlying stream is never closed by this reader.
+ */
+public class InputStreamDecodingReader extends CharsetDecodingReader {
+
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private final ByteBuffer buffer;
+
+	private InputStream inputStream;
+
+	public InputStreamDecodingReader() {
+		this(DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize The size of the byte and char buffers
+	 */
+	public InputStreamDecodingReader(int bufferSize) {
+		super(bufferSize);
+		buffer = ByteBuffer.allocate(Math.max(bufferSize, YamlEncoding.DETECTION_LENGTH));
+	}
+
+	/**
+	 * Starts reading the given stream.
+	 *
+	 * @param inputStream The YAML byte stream
+	 * @param defaultCharset The charset to use when the encoding can't be
+	 *            detected from the stream.
+	 * @return This reader
+	 */
+	public InputStreamDecodingReader reset(InputStream inputStream, Charset defaultCharset) throws IOException {
+		this.inputStream = inputStream;
+		start(defaultCharset);
+		return this;
+	}
+
+	/**
+	 * Drops the reference to the stream so that it isn't retained while
+	 * this reader is waiting to be reused.
+	 */
+	public void release() {
+		inputStream = null;
+	}
+
+	@Override
+	protected ByteBuffer nextBytes(ByteBuffer current) throws IOException {
+		if (current == null) {
+			buffer.clear();
+		} else {
+			buffer.compact();
+		}
+		int read = 0;
+		while (read == 0 && buffer.hasRemaining()) {
+			read = inputStream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+			if (read > 0) {
+				buffer.position(buffer.position() + read);
+			}
+		}
+		buffer.flip();
+		return read < 0 ? null : buffer;
+	}
+
+	@Override
+	public void close() throws IOException {
+		release();
+	}
+}
@@ -0,0 +1,142 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Decodes a YAML file by memory mapping it with {@link FileChannel#map}. The
+ * file is mapped in windows, so that files larger than 2GB can be read and
+ * only a part of the file needs to be mapped at the same time. The bytes are
+ * decoded straight from the mapped window, without copying them to the heap.
+ * <p/>
+ * The reader is reusable. Call {@link #open(Path, Charset)} to start reading
+ * a file and {@link #close()} to close it.
+ */
+public class MappedFileDecodingReader extends CharsetDecodingReader {
+
+	public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	public static final int DEFAULT_CHAR_BUFFER_SIZE = 64 * 1024;
+
+	private final int windowSize;
+
+	private FileChannel fileChannel;
+
+	private long fileSize;
+
+	private long windowStart;
+
+	public MappedFileDecodingReader() {
+		this(DEFAULT_WINDOW_SIZE, DEFAULT_CHAR_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param windowSize The maximum number of bytes that is mapped at the same time
+	 * @param charBufferSize The size of the char buffer
+	 */
+	public MappedFileDecodingReader(int windowSize, int charBufferSize) {
+		super(charBufferSize);
+		this.windowSize = Math.max(windowSize, YamlEncoding.DETECTION_LENGTH);
+	}
+
+	/**
+	 * Opens the file and starts reading it.
+	 *
+	 * @param file The YAML file
+	 * @param defaultCharset The charset to use when the encoding can't be
+	 *            detected from the file.
+	 * @return This reader
+	 */
+	public MappedFileDecodingReader open(Path file, Charset defaultCharset) throws IOException {
+		close();
+
+		fileChannel = FileChannel.open(file, StandardOpenOption.READ);
+		fileSize = fileChannel.size();
+		windowStart = 0;
+		try {
+			start(defaultCharset);
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+		return this;
+	}
+
+	@Override
+	protected ByteBuffer nextBytes(ByteBuffer current) throws IOException {
+		long position = 0;
+		if (current != null) {
+			if (windowStart + current.limit() >= fileSize) {
+				return null;
+			}
+			position = windowStart + current.position();
+		}
+		if (position >= fileSize) {
+			return null;
+		}
+		windowStart = position;
+
+		return fileChannel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, fileSize - position));
+	}
+
+	/**
+	 * Closes the file. The last mapped window is released by the garbage
+	 * collector.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (fileChannel != null) {
+			try {
+				fileChannel.close();
+			} finally {
+				fileChannel = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,240 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.io;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits a YAML stream into the texts of its documents, without parsing them.
+ * <p/>
+ * A document ends at a line that starts with a document marker (<code>---</code>
+ * or <code>...</code>) at the first column, because the YAML specification
+ * doesn't allow these markers at the first column within a document. Directives
+ * are kept with the document that follows them. Parts of the stream that only
+ * contain comments and empty lines don't result in a document. A document end marker
+ * without a document before it is only dropped after the first document and without
+ * directives, like the parser of SnakeYAML ignores it, so that the stream still fails
+ * to parse otherwise.
+ * <p/>
+ * The documents are read one by one, so that only the current document is held in
+ * memory, in a {@link DocumentBuffer} that is reused for the next document. The line
+ * breaks are normalized to <code>\n</code>, but a last line without a line break is kept
+ * without one, so that a document parses to the same values as it does within the stream.
+ */
+public class YamlDocumentSplitter {
+
+	private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+	private final Reader reader;
+
+	private final char[] buffer = new char[8192];
+
+	private int bufferPosition;
+
+	private int bufferLimit;
+
+	private final StringBuilder lineBuffer = new StringBuilder();
+
+	private final DocumentBuffer document = new DocumentBuffer();
+
+	private boolean documentHasContent;
+
+	private boolean documentHasDirective;
+
+	/** If a document was read, after which a document end marker without a document is ignored. */
+	private boolean documentRead;
+
+	private String nextLine;
+
+	private boolean firstLine = true;
+
+	/**
+	 * @param reader The YAML stream. The reader isn't closed by the splitter.
+	 */
+	public YamlDocumentSplitter(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * @return The text of the next document or <code>null</code> if the stream has no
+	 *         more documents.
+	 */
+	public String nextDocument() throws IOException {
+		DocumentBuffer text = readDocument();
+		return text != null ? text.toString() : null;
+	}
+
+	/**
+	 * Reads the next document without copying its text into a string.
+	 *
+	 * @return The buffer with the text of the next document or <code>null</code> if the
+	 *         stream has no more documents. The buffer is only valid until the next call.
+	 */
+	public DocumentBuffer readDocument() throws IOException {
+		document.clear();
+		documentHasContent = false;
+		documentHasDirective = false;
+
+		String line;
+		while ((line = readLine()) != null) {
+			if (isMarker(line, '-') || isDirective(line)) {
+				if (documentHasContent) {
+					// The line belongs to the next document
+					nextLine = line;
+					return documentRead();
+				}
+				append(line);
+				documentHasContent = isMarker(line, '-');
+				documentHasDirective |= isDirective(line);
+			} else if (isMarker(line, '.')) {
+				append(line);
+				if (documentHasContent || documentHasDirective || !documentRead) {
+					return documentRead();
+				}
+				document.clear();
+			} else {
+				append(line);
+				documentHasContent |= !isEmptyOrComment(line);
+			}
+		}
+		return documentHasContent ? documentRead() : null;
+	}
+
+	private DocumentBuffer documentRead() {
+		documentRead = true;
+		return document;
+	}
+
+	/**
+	 * @return The next line, with a <code>\n</code> at the end unless it is the last line
+	 *         of the stream and has no line break, or <code>null</code> at the end of the stream.
+	 */
+	private String readLine() throws IOException {
+		if (nextLine != null) {
+			String next = nextLine;
+			nextLine = null;
+			return next;
+		}
+
+		lineBuffer.setLength(0);
+		while (true) {
+			if (bufferPosition == bufferLimit && !fillBuffer()) {
+				break;
+			}
+			char c = buffer[bufferPosition++];
+			if (c == '\n') {
+				lineBuffer.append('\n');
+				break;
+			}
+			if (c == '\r') {
+				// A \r\n line break is one line break
+				if ((bufferPosition < bufferLimit || fillBuffer()) && buffer[bufferPosition] == '\n') {
+					bufferPosition++;
+				}
+				lineBuffer.append('\n');
+				break;
+			}
+			lineBuffer.append(c);
+		}
+		if (lineBuffer.length() == 0) {
+			return null;
+		}
+
+		int start = 0;
+		if (firstLine) {
+			firstLine = false;
+			if (lineBuffer.charAt(0) == BYTE_ORDER_MARK) {
+				start = 1;
+			}
+		}
+		return lineBuffer.substring(start);
+	}
+
+	private boolean fillBuffer() throws IOException {
+		int read = reader.read(buffer, 0, buffer.length);
+		while (read == 0) {
+			read = reader.read(buffer, 0, buffer.length);
+		}
+		if (read < 0) {
+			return false;
+		}
+		bufferPosition = 0;
+		bufferLimit = read;
+		return true;
+	}
+
+	private void append(String line) {
+		document.append(line);
+	}
+
+	/**
+	 * @return if the line starts with a document start or document end marker
+	 */
+	private static boolean isMarker(String line, char markerChar) {
+		return line.length() >= 3
+				&& line.charAt(0) == markerChar && line.charAt(1) == markerChar && line.charAt(2) == markerChar
+				&& (line.length() == 3 || isWhitespace(line.charAt(3)) || line.charAt(3) == '\n');
+	}
+
+	private static boolean isDirective(String line) {
+		return !line.isEmpty() && line.charAt(0) == '%';
+	}
+
+	private static boolean isEmptyOrComment(String line) {
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '#') {
+				return true;
+			}
+			if (!isWhitespace(c) && c != '\n') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t';
+	}
+}
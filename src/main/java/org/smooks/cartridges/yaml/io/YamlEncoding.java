@@ -0,0 +1,139 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Detects the character encoding of a YAML byte stream as described by the
+ * YAML specification. The encoding is deduced from the byte order mark or,
+ * if there is none, from the pattern of null bytes in the first four bytes
+ * of the stream.
+ */
+public final class YamlEncoding {
+
+	/**
+	 * The number of bytes that are needed to detect the encoding.
+	 */
+	public static final int DETECTION_LENGTH = 4;
+
+	private static final Charset UTF_32BE = Charset.forName("UTF-32BE");
+
+	private static final Charset UTF_32LE = Charset.forName("UTF-32LE");
+
+	private final Charset charset;
+
+	private final int bomLength;
+
+	private YamlEncoding(Charset charset, int bomLength) {
+		this.charset = charset;
+		this.bomLength = bomLength;
+	}
+
+	/**
+	 * Detects the encoding from the first bytes of the stream. The position
+	 * of the buffer isn't changed.
+	 *
+	 * @param bytes The buffer containing the first bytes of the stream. It
+	 *            should contain at least {@link #DETECTION_LENGTH} bytes,
+	 *            unless the stream is shorter.
+	 * @param defaultCharset The charset that is used when neither a byte
+	 *            order mark nor a null byte pattern is found.
+	 * @return The detected encoding
+	 */
+	public static YamlEncoding detect(ByteBuffer bytes, Charset defaultCharset) {
+		int position = bytes.position();
+		int length = Math.min(bytes.remaining(), DETECTION_LENGTH);
+
+		int b0 = length > 0 ? bytes.get(position) & 0xFF : -1;
+		int b1 = length > 1 ? bytes.get(position + 1) & 0xFF : -1;
+		int b2 = length > 2 ? bytes.get(position + 2) & 0xFF : -1;
+		int b3 = length > 3 ? bytes.get(position + 3) & 0xFF : -1;
+
+		if (b0 == 0x00 && b1 == 0x00 && b2 == 0xFE && b3 == 0xFF) {
+			return new YamlEncoding(UTF_32BE, 4);
+		}
+		if (b0 == 0x00 && b1 == 0x00 && b2 == 0x00 && b3 > 0x00) {
+			return new YamlEncoding(UTF_32BE, 0);
+		}
+		if (b0 == 0xFF && b1 == 0xFE && b2 == 0x00 && b3 == 0x00) {
+			return new YamlEncoding(UTF_32LE, 4);
+		}
+		if (b0 > 0x00 && b1 == 0x00 && b2 == 0x00 && b3 == 0x00) {
+			return new YamlEncoding(UTF_32LE, 0);
+		}
+		if (b0 == 0xFE && b1 == 0xFF) {
+			return new YamlEncoding(StandardCharsets.UTF_16BE, 2);
+		}
+		if (b0 == 0x00 && b1 > 0x00) {
+			return new YamlEncoding(StandardCharsets.UTF_16BE, 0);
+		}
+		if (b0 == 0xFF && b1 == 0xFE) {
+			return new YamlEncoding(StandardCharsets.UTF_16LE, 2);
+		}
+		if (b0 > 0x00 && b1 == 0x00) {
+			return new YamlEncoding(StandardCharsets.UTF_16LE, 0);
+		}
+		if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+			return new YamlEncoding(StandardCharsets.UTF_8, 3);
+		}
+		return new YamlEncoding(defaultCharset, 0);
+	}
+
+	/**
+	 * @return The charset of the stream
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * @return The number of bytes of the byte order mark or 0 if the stream
+	 *         doesn't start with a byte order mark.
+	 */
+	public int getBomLength() {
+		return bomLength;
+	}
+}
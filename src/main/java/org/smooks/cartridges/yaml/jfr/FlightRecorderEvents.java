@@ -0,0 +1,72 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.jfr;
+
+/**
+ * The Java Flight Recorder events, without a reference to the JFR API, so that
+ * {@link YamlFlightRecorder} compiles against the Java 8 API. It is implemented by
+ * <code>JfrEvents</code>, which is only compiled with the <code>jfr</code> profile.
+ */
+interface FlightRecorderEvents {
+
+	/**
+	 * @return The parse event or <code>null</code> if it is disabled
+	 */
+	Object beginParse();
+
+	void commitParse(Object event, String systemId, long bytesRead, long charsRead, long documentCount, long eventCount, boolean failed);
+
+	/**
+	 * @return The alias expansion event or <code>null</code> if it is disabled
+	 */
+	Object beginAliasExpansion();
+
+	void commitAliasExpansion(Object event, String anchor, String elementName, int replayedEventCount);
+
+	/**
+	 * @return The element name format event or <code>null</code> if it is disabled
+	 */
+	Object beginElementNameFormat();
+
+	void commitElementNameFormat(Object event, String key, String name, boolean cacheCleared);
+}
@@ -0,0 +1,139 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.jfr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Emits the Java Flight Recorder events of the YAML reader:
+ * <ul>
+ *     <li><code>org.smooks.cartridges.yaml.Parse</code>: a parse of a YAML stream, with its
+ *     system id, size and number of events.</li>
+ *     <li><code>org.smooks.cartridges.yaml.AliasExpansion</code>: the resolution of an alias,
+ *     with the name of the anchor and the number of replayed events.</li>
+ *     <li><code>org.smooks.cartridges.yaml.ElementNameFormat</code>: a key name that isn't
+ *     in the cache of the element name formatter.</li>
+ * </ul>
+ * The events are disabled by default. They are enabled in the settings of a recording,
+ * e.g. with <code>jfr configure +org.smooks.cartridges.yaml.Parse#enabled=true</code>
+ * or a custom <code>.jfc</code> file. A disabled event costs a check of a flag.
+ * <p/>
+ * The events are only referenced from <code>JfrEvents</code>, which is only compiled with
+ * the <code>jfr</code> profile, because the JFR API isn't part of the Java 8 API, and which
+ * is only loaded when the JVM supports JFR, so that the reader still runs on Java 8 runtimes
+ * without JFR. The begin methods return the event as an opaque object, or <code>null</code>
+ * when the event is disabled, for the same reason.
+ */
+public final class YamlFlightRecorder {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(YamlFlightRecorder.class);
+
+	private static final FlightRecorderEvents EVENTS = loadEvents();
+
+	private YamlFlightRecorder() {
+	}
+
+	/**
+	 * @return The events or <code>null</code> if JFR isn't available or the reader was built without the events
+	 */
+	private static FlightRecorderEvents loadEvents() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return (FlightRecorderEvents) Class.forName("org.smooks.cartridges.yaml.jfr.JfrEvents").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			LOGGER.debug("The YAML reader doesn't emit Java Flight Recorder events, because JFR isn't available", e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return The parse event or <code>null</code> if it is disabled
+	 */
+	public static Object beginParse() {
+		return EVENTS != null ? EVENTS.beginParse() : null;
+	}
+
+	/**
+	 * @param event The event of {@link #beginParse()}
+	 * @param bytesRead -1 if the YAML stream was supplied as a character stream
+	 */
+	public static void commitParse(Object event, String systemId, long bytesRead, long charsRead, long documentCount, long eventCount, boolean failed) {
+		if (event != null) {
+			EVENTS.commitParse(event, systemId, bytesRead, charsRead, documentCount, eventCount, failed);
+		}
+	}
+
+	/**
+	 * @return The alias expansion event or <code>null</code> if it is disabled
+	 */
+	public static Object beginAliasExpansion() {
+		return EVENTS != null ? EVENTS.beginAliasExpansion() : null;
+	}
+
+	/**
+	 * @param event The event of {@link #beginAliasExpansion()}
+	 */
+	public static void commitAliasExpansion(Object event, String anchor, String elementName, int replayedEventCount) {
+		if (event != null) {
+			EVENTS.commitAliasExpansion(event, anchor, elementName, replayedEventCount);
+		}
+	}
+
+	/**
+	 * @return The element name format event or <code>null</code> if it is disabled
+	 */
+	public static Object beginElementNameFormat() {
+		return EVENTS != null ? EVENTS.beginElementNameFormat() : null;
+	}
+
+	/**
+	 * @param event The event of {@link #beginElementNameFormat()}
+	 * @param cacheCleared If the cache was full, so that it was cleared
+	 */
+	public static void commitElementNameFormat(Object event, String key, String name, boolean cacheCleared) {
+		if (event != null) {
+			EVENTS.commitElementNameFormat(event, key, name, cacheCleared);
+		}
+	}
+}
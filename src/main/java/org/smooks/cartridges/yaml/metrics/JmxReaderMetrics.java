@@ -0,0 +1,313 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.metrics;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.events.Event;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The default {@link ReaderMetrics}: one MBean per reader configuration that adds up the
+ * statistics of its parses. The MBean is registered in the platform MBean server under
+ * <code>org.smooks.cartridges.yaml:type=YamlReader,rootName=&lt;root name&gt;,id=&lt;n&gt;</code>
+ * and unregistered when the Smooks instance is closed.
+ */
+public final class JmxReaderMetrics implements ReaderMetrics, JmxReaderMetricsMBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(JmxReaderMetrics.class);
+
+	public static final String DOMAIN = "org.smooks.cartridges.yaml";
+
+	private static final AtomicInteger ID = new AtomicInteger();
+
+	private final ObjectName objectName;
+
+	private final LongAdder parseCount = new LongAdder();
+
+	private final LongAdder failedParseCount = new LongAdder();
+
+	private final LongAdder bytesRead = new LongAdder();
+
+	private final LongAdder charsRead = new LongAdder();
+
+	private final LongAdder[] eventCounts = new LongAdder[Event.ID.values().length];
+
+	private final LongAdder elementCount = new LongAdder();
+
+	private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+
+	private final LongAdder anchorCount = new LongAdder();
+
+	private final LongAdder aliasExpansionCount = new LongAdder();
+
+	private final LongAdder totalNanos = new LongAdder();
+
+	private final LongAdder contentHandlerNanos = new LongAdder();
+
+	private final LongAccumulator maxTotalNanos = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * The statistics of the last parse.
+	 */
+	private volatile ParseStatistics last;
+
+	private boolean registered;
+
+	/**
+	 * @param rootName The root element name of the reader configuration, which makes the
+	 *            MBean easier to recognize
+	 */
+	public JmxReaderMetrics(String rootName) {
+		for (int i = 0; i < eventCounts.length; i++) {
+			eventCounts[i] = new LongAdder();
+		}
+		try {
+			objectName = new ObjectName(DOMAIN + ":type=YamlReader,rootName=" + ObjectName.quote(rootName) + ",id=" + ID.incrementAndGet());
+		} catch (MalformedObjectNameException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * @return The name of the MBean
+	 */
+	public ObjectName getObjectName() {
+		return objectName;
+	}
+
+	/**
+	 * Registers the MBean in the platform MBean server. A failure is logged, because the
+	 * parses don't depend on the MBean.
+	 */
+	public synchronized void register() {
+		if (!registered) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+				registered = true;
+			} catch (JMException | SecurityException e) {
+				LOGGER.warn("Failed to register the YAML reader metrics MBean '" + objectName + "'", e);
+			}
+		}
+	}
+
+	@PreDestroy
+	public synchronized void unregister() {
+		if (registered) {
+			registered = false;
+			MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+			try {
+				mBeanServer.unregisterMBean(objectName);
+			} catch (JMException | SecurityException e) {
+				LOGGER.warn("Failed to unregister the YAML reader metrics MBean '" + objectName + "'", e);
+			}
+		}
+	}
+
+	@Override
+	public void parsed(ParseStatistics statistics) {
+		parseCount.increment();
+		if (statistics.isFailed()) {
+			failedParseCount.increment();
+		}
+		if (statistics.getBytesRead() > 0) {
+			bytesRead.add(statistics.getBytesRead());
+		}
+		charsRead.add(statistics.getCharsRead());
+		for (Event.ID id : Event.ID.values()) {
+			long count = statistics.getEventCount(id);
+			if (count > 0) {
+				eventCounts[id.ordinal()].add(count);
+			}
+		}
+		elementCount.add(statistics.getElementCount());
+		maxDepth.accumulate(statistics.getMaxDepth());
+		anchorCount.add(statistics.getAnchorCount());
+		aliasExpansionCount.add(statistics.getAliasExpansionCount());
+		totalNanos.add(statistics.getTotalNanos());
+		contentHandlerNanos.add(statistics.getContentHandlerNanos());
+		maxTotalNanos.accumulate(statistics.getTotalNanos());
+		last = statistics;
+	}
+
+	@Override
+	public long getParseCount() {
+		return parseCount.sum();
+	}
+
+	@Override
+	public long getFailedParseCount() {
+		return failedParseCount.sum();
+	}
+
+	@Override
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	@Override
+	public long getCharsRead() {
+		return charsRead.sum();
+	}
+
+	@Override
+	public long getEventCount() {
+		long eventCount = 0;
+		for (LongAdder count : eventCounts) {
+			eventCount += count.sum();
+		}
+		return eventCount;
+	}
+
+	@Override
+	public long getDocumentCount() {
+		return eventCounts[Event.ID.DocumentStart.ordinal()].sum();
+	}
+
+	@Override
+	public long getMappingCount() {
+		return eventCounts[Event.ID.MappingStart.ordinal()].sum();
+	}
+
+	@Override
+	public long getSequenceCount() {
+		return eventCounts[Event.ID.SequenceStart.ordinal()].sum();
+	}
+
+	@Override
+	public long getScalarCount() {
+		return eventCounts[Event.ID.Scalar.ordinal()].sum();
+	}
+
+	@Override
+	public long getAliasCount() {
+		return eventCounts[Event.ID.Alias.ordinal()].sum();
+	}
+
+	@Override
+	public long getElementCount() {
+		return elementCount.sum();
+	}
+
+	@Override
+	public int getMaxDepth() {
+		return (int) maxDepth.get();
+	}
+
+	@Override
+	public long getAnchorCount() {
+		return anchorCount.sum();
+	}
+
+	@Override
+	public long getAliasExpansionCount() {
+		return aliasExpansionCount.sum();
+	}
+
+	@Override
+	public long getTotalTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum());
+	}
+
+	@Override
+	public long getParseTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() - contentHandlerNanos.sum());
+	}
+
+	@Override
+	public long getContentHandlerTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(contentHandlerNanos.sum());
+	}
+
+	@Override
+	public long getMaxTotalTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxTotalNanos.get());
+	}
+
+	@Override
+	public long getLastTotalTimeMillis() {
+		ParseStatistics statistics = last;
+		return statistics != null ? TimeUnit.NANOSECONDS.toMillis(statistics.getTotalNanos()) : 0;
+	}
+
+	@Override
+	public long getLastParseTimeMillis() {
+		ParseStatistics statistics = last;
+		return statistics != null ? TimeUnit.NANOSECONDS.toMillis(statistics.getParseNanos()) : 0;
+	}
+
+	@Override
+	public long getLastContentHandlerTimeMillis() {
+		ParseStatistics statistics = last;
+		return statistics != null ? TimeUnit.NANOSECONDS.toMillis(statistics.getContentHandlerNanos()) : 0;
+	}
+
+	@Override
+	public void reset() {
+		parseCount.reset();
+		failedParseCount.reset();
+		bytesRead.reset();
+		charsRead.reset();
+		for (LongAdder count : eventCounts) {
+			count.reset();
+		}
+		elementCount.reset();
+		maxDepth.reset();
+		anchorCount.reset();
+		aliasExpansionCount.reset();
+		totalNanos.reset();
+		contentHandlerNanos.reset();
+		maxTotalNanos.reset();
+		last = null;
+	}
+}
@@ -0,0 +1,196 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.metrics;
+
+import org.smooks.api.resource.config.ResourceConfig;
+import org.yaml.snakeyaml.events.Event;
+
+/**
+ * The statistics of one parse of a YAML reader.
+ */
+public final class ParseStatistics {
+
+	private final ResourceConfig readerConfig;
+
+	private final boolean failed;
+
+	private final long bytesRead;
+
+	private final long charsRead;
+
+	private final long[] eventCounts;
+
+	private final long elementCount;
+
+	private final int maxDepth;
+
+	private final long anchorCount;
+
+	private final long aliasExpansionCount;
+
+	private final long totalNanos;
+
+	private final long contentHandlerNanos;
+
+	/**
+	 * @param eventCounts The number of events by the ordinal of their {@link Event.ID}
+	 */
+	public ParseStatistics(ResourceConfig readerConfig, boolean failed, long bytesRead, long charsRead, long[] eventCounts,
+						   long elementCount, int maxDepth, long anchorCount, long aliasExpansionCount, long totalNanos,
+						   long contentHandlerNanos) {
+		this.readerConfig = readerConfig;
+		this.failed = failed;
+		this.bytesRead = bytesRead;
+		this.charsRead = charsRead;
+		this.eventCounts = eventCounts.clone();
+		this.elementCount = elementCount;
+		this.maxDepth = maxDepth;
+		this.anchorCount = anchorCount;
+		this.aliasExpansionCount = aliasExpansionCount;
+		this.totalNanos = totalNanos;
+		this.contentHandlerNanos = contentHandlerNanos;
+	}
+
+	/**
+	 * @return The configuration of the reader
+	 */
+	public ResourceConfig getReaderConfig() {
+		return readerConfig;
+	}
+
+	/**
+	 * @return <code>true</code> if the parse ended with an exception
+	 */
+	public boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * @return The number of bytes that are decoded, or -1 if the YAML stream was supplied
+	 *         as a character stream
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * @return The number of chars that are read from the YAML stream
+	 */
+	public long getCharsRead() {
+		return charsRead;
+	}
+
+	/**
+	 * @param id The event type
+	 * @return The number of events of the type in the YAML stream, without the events
+	 *         that are replayed for the aliases
+	 */
+	public long getEventCount(Event.ID id) {
+		return eventCounts[id.ordinal()];
+	}
+
+	/**
+	 * @return The number of events in the YAML stream
+	 */
+	public long getEventCount() {
+		long eventCount = 0;
+		for (long count : eventCounts) {
+			eventCount += count;
+		}
+		return eventCount;
+	}
+
+	/**
+	 * @return The number of elements that are produced, including the elements of the
+	 *         resolved aliases
+	 */
+	public long getElementCount() {
+		return elementCount;
+	}
+
+	/**
+	 * @return The maximum depth of the nested mappings and sequences
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return The number of anchors that are captured to resolve the aliases
+	 */
+	public long getAnchorCount() {
+		return anchorCount;
+	}
+
+	/**
+	 * @return The number of aliases that are resolved
+	 */
+	public long getAliasExpansionCount() {
+		return aliasExpansionCount;
+	}
+
+	/**
+	 * @return The duration of the parse in nanoseconds
+	 */
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/**
+	 * @return The nanoseconds that are spent in the callbacks of the content handler, that
+	 *         is in Smooks and its visitors
+	 */
+	public long getContentHandlerNanos() {
+		return contentHandlerNanos;
+	}
+
+	/**
+	 * @return The nanoseconds of the parse that aren't spent in the content handler, that
+	 *         is in reading and parsing the YAML stream. When the reader is pipelined the
+	 *         parsing overlaps with the content handler, so then this is the time that the
+	 *         content handler waits for the parser.
+	 */
+	public long getParseNanos() {
+		return totalNanos - contentHandlerNanos;
+	}
+}
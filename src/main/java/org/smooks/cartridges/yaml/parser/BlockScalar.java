@@ -0,0 +1,276 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.parser;
+
+import org.smooks.cartridges.yaml.io.DocumentBuffer;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.events.ImplicitTuple;
+import org.yaml.snakeyaml.events.ScalarEvent;
+
+/**
+ * A literal or folded block scalar that is still in the text of its document. The value
+ * of the scalar is produced from the lines of the text when it is needed, so that a
+ * large scalar can be written in chunks without holding its whole value.
+ * <p/>
+ * The value is the same as the value that SnakeYAML scans: the indentation of the lines
+ * is removed, a folded scalar joins its lines with a space, and the trailing line breaks
+ * are chomped as indicated by the header of the scalar.
+ * <p/>
+ * The text of the document is reused for the next document, so a block scalar is only
+ * valid during the {@link EventSink#blockScalar(BlockScalar)} call that it is pushed to.
+ */
+public final class BlockScalar {
+
+	static final char STRIP = '-';
+
+	static final char CLIP = ' ';
+
+	static final char KEEP = '+';
+
+	private static final ImplicitTuple IMPLICIT = new ImplicitTuple(false, true);
+
+	private final String anchor;
+
+	private final DocumentBuffer text;
+
+	private final int start;
+
+	private final int end;
+
+	private final int indent;
+
+	private final boolean folded;
+
+	private final char chomping;
+
+	/**
+	 * @param start The start of the first line of the scalar
+	 * @param end The end of the last line of the scalar, which is the start of the line
+	 *            that follows the scalar or the end of the document
+	 * @param indent The indentation of the scalar
+	 */
+	BlockScalar(String anchor, DocumentBuffer text, int start, int end, int indent, boolean folded, char chomping) {
+		this.anchor = anchor;
+		this.text = text;
+		this.start = start;
+		this.end = end;
+		this.indent = indent;
+		this.folded = folded;
+		this.chomping = chomping;
+	}
+
+	public String getAnchor() {
+		return anchor;
+	}
+
+	public ImplicitTuple getImplicit() {
+		return IMPLICIT;
+	}
+
+	public DumperOptions.ScalarStyle getScalarStyle() {
+		return folded ? DumperOptions.ScalarStyle.FOLDED : DumperOptions.ScalarStyle.LITERAL;
+	}
+
+	/**
+	 * @return The number of chars of the scalar in the text, which is at least the length of its value
+	 */
+	public int getTextLength() {
+		return end - start;
+	}
+
+	/**
+	 * @return The event of the scalar, with its whole value
+	 */
+	public ScalarEvent toEvent() {
+		StringBuilder value = new StringBuilder(getTextLength());
+		try {
+			write(new Output() {
+				@Override
+				public void append(char c) {
+					value.append(c);
+				}
+
+				@Override
+				public void append(DocumentBuffer s, int from, int to) {
+					value.append(s, from, to);
+				}
+			});
+		} catch (SAXException e) {
+			// A StringBuilder doesn't throw
+			throw new IllegalStateException(e);
+		}
+		return new ScalarEvent(anchor, null, IMPLICIT, value.toString(), null, null, getScalarStyle());
+	}
+
+	/**
+	 * Writes the value of the scalar to the content handler, in chunks of at most the
+	 * length of the buffer.
+	 *
+	 * @param buffer The buffer that the chunks are copied into
+	 */
+	public void writeTo(ContentHandler contentHandler, char[] buffer) throws SAXException {
+		ChunkOutput output = new ChunkOutput(contentHandler, buffer);
+		write(output);
+		output.flush();
+	}
+
+	/**
+	 * Produces the value like the block scalar scanner of SnakeYAML: the breaks of the empty
+	 * lines are written before the next line, and the break of a line is written when the
+	 * next line is known, because a folded scalar joins two lines that start with a non
+	 * space with a space instead, if there are no empty lines in between.
+	 */
+	private void write(Output output) throws SAXException {
+		boolean first = true;
+		boolean leadingNonSpace = false;
+		boolean lineBreak = false;
+		int breaks = 0;
+
+		for(int lineStart = start; lineStart < end; ) {
+			int lineEnd = text.indexOf('\n', lineStart);
+			if(lineEnd == -1 || lineEnd > end) {
+				lineEnd = end;
+			}
+
+			if(lineEnd - lineStart > indent) {
+				char c = text.charAt(lineStart + indent);
+				boolean nextLeadingNonSpace = c != ' ' && c != '\t';
+				if(!first && !(folded && leadingNonSpace && nextLeadingNonSpace)) {
+					output.append('\n');
+				} else if(!first && breaks == 0) {
+					output.append(' ');
+				}
+				appendBreaks(output, breaks);
+				output.append(text, lineStart + indent, lineEnd);
+
+				first = false;
+				leadingNonSpace = nextLeadingNonSpace;
+				lineBreak = lineEnd < end;
+				breaks = 0;
+			} else if(lineEnd < end) {
+				breaks++;
+			}
+
+			lineStart = lineEnd < end ? lineEnd + 1 : end;
+		}
+
+		if(chomping != STRIP && lineBreak) {
+			output.append('\n');
+		}
+		if(chomping == KEEP) {
+			appendBreaks(output, breaks);
+		}
+	}
+
+	private static void appendBreaks(Output output, int breaks) throws SAXException {
+		for(int i = 0; i < breaks; i++) {
+			output.append('\n');
+		}
+	}
+
+	private interface Output {
+
+		void append(char c) throws SAXException;
+
+		void append(DocumentBuffer s, int from, int to) throws SAXException;
+	}
+
+	/**
+	 * Copies the value into the buffer and hands the buffer to the content handler when
+	 * it is full.
+	 */
+	private static final class ChunkOutput implements Output {
+
+		private final ContentHandler contentHandler;
+
+		private final char[] buffer;
+
+		private int length;
+
+		private ChunkOutput(ContentHandler contentHandler, char[] buffer) {
+			this.contentHandler = contentHandler;
+			this.buffer = buffer;
+		}
+
+		@Override
+		public void append(char c) throws SAXException {
+			if(length == buffer.length) {
+				flush();
+			}
+			buffer[length++] = c;
+		}
+
+		@Override
+		public void append(DocumentBuffer s, int from, int to) throws SAXException {
+			while(from < to) {
+				if(length == buffer.length) {
+					flush();
+				}
+				int chunkEnd = Math.min(to, from + buffer.length - length);
+				if(chunkEnd < to && Character.isHighSurrogate(s.charAt(chunkEnd - 1))) {
+					// Don't split a surrogate pair over two chunks
+					chunkEnd--;
+					if(chunkEnd == from) {
+						flush();
+						continue;
+					}
+				}
+				s.getChars(from, chunkEnd, buffer, length);
+				length += chunkEnd - from;
+				from = chunkEnd;
+				if(from < to) {
+					flush();
+				}
+			}
+		}
+
+		private void flush() throws SAXException {
+			if(length > 0) {
+				contentHandler.characters(buffer, 0, length);
+				length = 0;
+			}
+		}
+	}
+}
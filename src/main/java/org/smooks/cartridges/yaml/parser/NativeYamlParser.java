@@ -0,0 +1,1027 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.parser;
+
+import org.smooks.cartridges.yaml.io.DocumentBuffer;
+import org.smooks.cartridges.yaml.io.YamlDocumentSplitter;
+import org.xml.sax.SAXException;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ImplicitTuple;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A YAML parser for the common subset of YAML that pushes the events directly to an
+ * {@link EventSink}, without the token queue, the marks and the state machine of the
+ * SnakeYAML scanner and parser.
+ * <p/>
+ * The stream is split into its documents with the {@link YamlDocumentSplitter}. A
+ * document is first checked by tokenizing it without creating any events. Only when
+ * the whole document is in the supported subset are its events created and pushed. Any
+ * other document is parsed by SnakeYAML, so the events of the stream are the same as the
+ * events that SnakeYAML produces, and so are the errors of malformed documents. The
+ * supported subset is:
+ * <ul>
+ *     <li>block mappings with single line plain or quoted keys and block sequences</li>
+ *     <li>flow mappings and flow sequences</li>
+ *     <li>single line plain, single quoted and double quoted scalars</li>
+ *     <li>literal and folded block scalars without an indentation indicator</li>
+ *     <li>anchors and aliases</li>
+ *     <li>comments and document markers</li>
+ * </ul>
+ * Multi-line flow scalars, tags, directives, complex keys and tabs used as whitespace are
+ * left to SnakeYAML.
+ * <p/>
+ * A block scalar of which the text has at least a threshold number of chars is pushed to
+ * {@link EventSink#blockScalar(BlockScalar)}, so that the sink can write its value in
+ * chunks from the text of the document, instead of creating a string with the value.
+ * <p/>
+ * The events don't have marks, so the errors of the event handlers don't report the
+ * line and column of documents that are parsed by this parser.
+ * <p/>
+ * The parser isn't thread safe.
+ */
+public final class NativeYamlParser {
+
+	private static final ImplicitTuple PLAIN_IMPLICIT = new ImplicitTuple(true, false);
+
+	private static final ImplicitTuple QUOTED_IMPLICIT = new ImplicitTuple(false, true);
+
+	/**
+	 * SnakeYAML doesn't allow longer simple keys.
+	 */
+	private static final int MAX_SIMPLE_KEY_LENGTH = 1024;
+
+	/**
+	 * The collections are parsed by recursion, so a deeper document is left to the
+	 * parser of SnakeYAML, which keeps its states on the heap.
+	 */
+	private static final int MAX_NESTING_DEPTH = 256;
+
+	private final LoaderOptions loaderOptions;
+
+	private final int largeScalarThreshold;
+
+	private final StringBuilder buffer = new StringBuilder();
+
+	private int documentCount;
+
+	private int fallbackCount;
+
+	/** The document that is being tokenized. */
+	private DocumentBuffer text;
+
+	private int pos;
+
+	private int end;
+
+	private int lineStart;
+
+	/** The number of collections that the current position is in. */
+	private int depth;
+
+	/** <code>null</code> while a document is checked. */
+	private EventSink sink;
+
+	/**
+	 * @param loaderOptions The options of SnakeYAML for the documents that it parses.
+	 *            The code point limit applies to all the documents.
+	 */
+	public NativeYamlParser(LoaderOptions loaderOptions) {
+		this(loaderOptions, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param loaderOptions The options of SnakeYAML for the documents that it parses.
+	 *            The code point limit applies to all the documents.
+	 * @param largeScalarThreshold The number of chars of the text of a block scalar from
+	 *            which it is pushed as {@link BlockScalar}
+	 */
+	public NativeYamlParser(LoaderOptions loaderOptions, int largeScalarThreshold) {
+		this.loaderOptions = loaderOptions;
+		this.largeScalarThreshold = largeScalarThreshold;
+	}
+
+	/**
+	 * Parses the YAML stream and pushes its events to the sink.
+	 *
+	 * @param reader The YAML stream. The reader isn't closed.
+	 * @param eventSink The receiver of the events
+	 */
+	public void parse(Reader reader, EventSink eventSink) throws IOException, SAXException {
+		YamlDocumentSplitter splitter = new YamlDocumentSplitter(reader);
+
+		eventSink.event(new StreamStartEvent(null, null));
+
+		DocumentBuffer document;
+		while((document = splitter.readDocument()) != null) {
+			documentCount++;
+			if(document.length() <= loaderOptions.getCodePointLimit() && tokenize(document, null)) {
+				tokenize(document, eventSink);
+			} else {
+				fallbackCount++;
+				parseWithSnakeYaml(document, eventSink);
+			}
+		}
+
+		eventSink.event(new StreamEndEvent(null, null));
+	}
+
+	/**
+	 * @return The number of documents that are parsed
+	 */
+	public int getDocumentCount() {
+		return documentCount;
+	}
+
+	/**
+	 * @return The number of documents that are parsed by SnakeYAML, because they aren't
+	 *         in the supported subset
+	 */
+	public int getFallbackCount() {
+		return fallbackCount;
+	}
+
+	private void parseWithSnakeYaml(DocumentBuffer document, EventSink eventSink) throws SAXException {
+		Parser parser = new ParserImpl(new StreamReader(document.newReader()), loaderOptions);
+		while(parser.peekEvent() != null) {
+			Event event = parser.getEvent();
+			if(!event.is(Event.ID.StreamStart) && !event.is(Event.ID.StreamEnd)) {
+				eventSink.event(event);
+			}
+		}
+	}
+
+	/**
+	 * Tokenizes the document. The events are only created when there is a sink.
+	 *
+	 * @return if the document is in the supported subset
+	 */
+	private boolean tokenize(DocumentBuffer document, EventSink eventSink) throws SAXException {
+		text = document;
+		pos = 0;
+		lineStart = 0;
+		depth = 0;
+		end = document.length();
+		sink = eventSink;
+		try {
+			parseDocument();
+			return true;
+		} catch (UnsupportedException e) {
+			if(eventSink != null) {
+				throw new IllegalStateException("The YAML document changed between the check and the parse.", e);
+			}
+			return false;
+		} finally {
+			text = null;
+			sink = null;
+		}
+	}
+
+	private void parseDocument() throws SAXException {
+		boolean explicitStart = false;
+		boolean explicitEnd = false;
+
+		// The document splitter only puts a document end marker at the end of a document
+		int lastLineStart = text.lastIndexOf('\n', end - 2) + 1;
+		if(isMarker(lastLineStart, '.')) {
+			explicitEnd = true;
+			end = lastLineStart;
+		}
+
+		skipBlank();
+		if(pos < end && text.charAt(pos) == '%') {
+			throw UnsupportedException.INSTANCE;
+		}
+		if(pos < end && pos == lineStart && isMarker(pos, '-')) {
+			explicitStart = true;
+			pos += 3;
+			// Content on the line of the document start marker isn't supported
+			skipSpaces();
+			if(pos < end && text.charAt(pos) != '\n' && text.charAt(pos) != '#') {
+				throw UnsupportedException.INSTANCE;
+			}
+			skipBlank();
+		}
+		// A document end marker without a document is an error of SnakeYAML, e.g. at the start
+		// of the stream, where the splitter passes it as a document
+		if(explicitEnd && !explicitStart && pos >= end) {
+			throw UnsupportedException.INSTANCE;
+		}
+
+		emit(new DocumentStartEvent(null, null, explicitStart, null, null));
+
+		if(pos < end) {
+			parseBlockNode(-1, false, false);
+			skipBlank();
+			if(pos < end) {
+				throw UnsupportedException.INSTANCE;
+			}
+		} else {
+			emitScalar(null, "", PLAIN_IMPLICIT, DumperOptions.ScalarStyle.PLAIN);
+		}
+
+		emit(new DocumentEndEvent(null, null, explicitEnd));
+	}
+
+	/**
+	 * Parses the block node at the current position, which is the first character of
+	 * the node.
+	 *
+	 * @param parentIndent The indentation of the parent collection
+	 * @param inline If the node is on the same line as the key of its mapping
+	 * @param sequenceAtParentIndent If the node may be a sequence at the indentation of its parent mapping
+	 */
+	private void parseBlockNode(int parentIndent, boolean inline, boolean sequenceAtParentIndent) throws SAXException {
+		String anchor = null;
+		char c = text.charAt(pos);
+
+		if(c == '&') {
+			anchor = scanAnchorName();
+			int anchorLineStart = lineStart;
+			skipBlank();
+			if(lineStart != anchorLineStart) {
+				inline = false;
+				if(pos >= end || column() < parentIndent || (column() == parentIndent && !(sequenceAtParentIndent && isSequenceEntry()))) {
+					emitScalar(anchor, "", PLAIN_IMPLICIT, DumperOptions.ScalarStyle.PLAIN);
+					return;
+				}
+			} else if(pos >= end) {
+				emitScalar(anchor, "", PLAIN_IMPLICIT, DumperOptions.ScalarStyle.PLAIN);
+				return;
+			}
+			c = text.charAt(pos);
+			if(c == '&' || c == '*') {
+				throw UnsupportedException.INSTANCE;
+			}
+			if(lineStart == anchorLineStart && c != '[' && c != '{' && c != '-') {
+				// An anchor before a key on the same line is the anchor of the key
+				if(isKeyAhead()) {
+					throw UnsupportedException.INSTANCE;
+				}
+			}
+		}
+
+		if(c == '*') {
+			String alias = scanAnchorName();
+			if(sink != null) {
+				sink.event(new AliasEvent(alias, null, null));
+			}
+			expectLineEnd();
+		} else if(c == '-' && isBlank(pos + 1)) {
+			if(inline) {
+				throw UnsupportedException.INSTANCE;
+			}
+			parseBlockSequence(column(), anchor);
+		} else if(c == '[' || c == '{') {
+			parseFlowCollection(anchor);
+			expectLineEnd();
+		} else if(c == '|' || c == '>') {
+			parseBlockScalar(anchor, parentIndent);
+		} else {
+			int keyIndent = column();
+			DumperOptions.ScalarStyle style = scalarStyle(c);
+			String value = style == DumperOptions.ScalarStyle.PLAIN ? scanPlain(false) : scanQuoted(c);
+			int valueEnd = pos;
+			skipSpaces();
+			if(pos < end && text.charAt(pos) == ':' && isBlank(pos + 1)) {
+				if(inline) {
+					throw UnsupportedException.INSTANCE;
+				}
+				parseBlockMapping(keyIndent, anchor, value, style);
+			} else {
+				pos = valueEnd;
+				emitScalar(anchor, value, implicit(style), style);
+				expectLineEnd();
+			}
+		}
+	}
+
+	/**
+	 * Parses a block mapping of which the first key is scanned. The current position is
+	 * the ':' after the first key.
+	 */
+	private void parseBlockMapping(int indent, String anchor, String firstKey, DumperOptions.ScalarStyle firstKeyStyle) throws SAXException {
+		enterCollection();
+		if(sink != null) {
+			sink.event(new MappingStartEvent(anchor, null, true, null, null, DumperOptions.FlowStyle.BLOCK));
+		}
+
+		String key = firstKey;
+		DumperOptions.ScalarStyle keyStyle = firstKeyStyle;
+		while(true) {
+			emitScalar(null, key, implicit(keyStyle), keyStyle);
+
+			// Skip the ':'
+			pos++;
+			parseMappingValue(indent);
+
+			skipBlank();
+			if(pos >= end || column() < indent) {
+				break;
+			}
+			if(column() > indent) {
+				throw UnsupportedException.INSTANCE;
+			}
+
+			char c = text.charAt(pos);
+			keyStyle = scalarStyle(c);
+			if(keyStyle == DumperOptions.ScalarStyle.PLAIN && !isPlainStart(c, false)) {
+				throw UnsupportedException.INSTANCE;
+			}
+			key = keyStyle == DumperOptions.ScalarStyle.PLAIN ? scanPlain(false) : scanQuoted(c);
+			skipSpaces();
+			if(pos >= end || text.charAt(pos) != ':' || !isBlank(pos + 1)) {
+				throw UnsupportedException.INSTANCE;
+			}
+		}
+
+		if(sink != null) {
+			sink.event(new MappingEndEvent(null, null));
+		}
+		depth--;
+	}
+
+	private void parseMappingValue(int indent) throws SAXException {
+		skipSpaces();
+		if(pos < end && text.charAt(pos) != '\n' && text.charAt(pos) != '#') {
+			parseBlockNode(indent, true, true);
+			return;
+		}
+
+		skipBlank();
+		if(pos < end && column() > indent) {
+			parseBlockNode(indent, false, false);
+		} else if(pos < end && column() == indent && isSequenceEntry()) {
+			parseBlockNode(indent, false, true);
+		} else {
+			emitScalar(null, "", PLAIN_IMPLICIT, DumperOptions.ScalarStyle.PLAIN);
+		}
+	}
+
+	/**
+	 * Parses a block sequence. The current position is the '-' of the first entry.
+	 */
+	private void parseBlockSequence(int indent, String anchor) throws SAXException {
+		enterCollection();
+		if(sink != null) {
+			sink.event(new SequenceStartEvent(anchor, null, true, null, null, DumperOptions.FlowStyle.BLOCK));
+		}
+
+		while(true) {
+			// Skip the '-'
+			pos++;
+			skipSpaces();
+			if(pos < end && text.charAt(pos) != '\n' && text.charAt(pos) != '#') {
+				parseBlockNode(indent, false, false);
+			} else {
+				skipBlank();
+				if(pos < end && column() > indent) {
+					parseBlockNode(indent, false, false);
+				} else {
+					emitScalar(null, "", PLAIN_IMPLICIT, DumperOptions.ScalarStyle.PLAIN);
+				}
+			}
+
+			skipBlank();
+			if(pos >= end || column() < indent) {
+				break;
+			}
+			if(column() > indent) {
+				throw UnsupportedException.INSTANCE;
+			}
+			if(!isSequenceEntry()) {
+				// A key of the mapping that has this sequence as value
+				break;
+			}
+		}
+
+		if(sink != null) {
+			sink.event(new SequenceEndEvent(null, null));
+		}
+		depth--;
+	}
+
+	/**
+	 * Parses a flow sequence or flow mapping. The current position is its start
+	 * character.
+	 */
+	private void parseFlowCollection(String anchor) throws SAXException {
+		enterCollection();
+		if(text.charAt(pos) == '[') {
+			if(sink != null) {
+				sink.event(new SequenceStartEvent(anchor, null, true, null, null, DumperOptions.FlowStyle.FLOW));
+			}
+			pos++;
+			while(true) {
+				skipBlank();
+				if(pos < end && text.charAt(pos) == ']') {
+					break;
+				}
+				parseFlowNode();
+				if(!skipFlowSeparator(']')) {
+					break;
+				}
+			}
+			pos++;
+			if(sink != null) {
+				sink.event(new SequenceEndEvent(null, null));
+			}
+		} else {
+			if(sink != null) {
+				sink.event(new MappingStartEvent(anchor, null, true, null, null, DumperOptions.FlowStyle.FLOW));
+			}
+			pos++;
+			while(true) {
+				skipBlank();
+				if(pos < end && text.charAt(pos) == '}') {
+					break;
+				}
+				parseFlowKey();
+				skipBlank();
+				if(pos < end && (text.charAt(pos) == ',' || text.charAt(pos) == '}')) {
+					emitScalar(null, "", PLAIN_IMPLICIT, DumperOptions.ScalarStyle.PLAIN);
+				} else {
+					parseFlowNode();
+				}
+				if(!skipFlowSeparator('}')) {
+					break;
+				}
+			}
+			pos++;
+			if(sink != null) {
+				sink.event(new MappingEndEvent(null, null));
+			}
+		}
+		depth--;
+	}
+
+	private void enterCollection() {
+		if(++depth > MAX_NESTING_DEPTH) {
+			throw UnsupportedException.INSTANCE;
+		}
+	}
+
+	/**
+	 * Skips the ',' after an entry of a flow collection.
+	 *
+	 * @return <code>false</code> if the collection ends
+	 */
+	private boolean skipFlowSeparator(char endChar) {
+		skipBlank();
+		if(pos >= end) {
+			throw UnsupportedException.INSTANCE;
+		}
+		char c = text.charAt(pos);
+		if(c == ',') {
+			pos++;
+			return true;
+		}
+		if(c == endChar) {
+			return false;
+		}
+		throw UnsupportedException.INSTANCE;
+	}
+
+	private void parseFlowKey() throws SAXException {
+		if(pos >= end) {
+			throw UnsupportedException.INSTANCE;
+		}
+		char c = text.charAt(pos);
+		DumperOptions.ScalarStyle style = scalarStyle(c);
+		if(style == DumperOptions.ScalarStyle.PLAIN && !isPlainStart(c, true)) {
+			throw UnsupportedException.INSTANCE;
+		}
+		String key = style == DumperOptions.ScalarStyle.PLAIN ? scanPlain(true) : scanQuoted(c);
+		skipSpaces();
+		if(pos >= end || text.charAt(pos) != ':' || !isBlank(pos + 1)) {
+			throw UnsupportedException.INSTANCE;
+		}
+		pos++;
+		emitScalar(null, key, implicit(style), style);
+	}
+
+	private void parseFlowNode() throws SAXException {
+		if(pos >= end) {
+			throw UnsupportedException.INSTANCE;
+		}
+		String anchor = null;
+		char c = text.charAt(pos);
+		if(c == '&') {
+			anchor = scanAnchorName();
+			skipBlank();
+			if(pos >= end) {
+				throw UnsupportedException.INSTANCE;
+			}
+			c = text.charAt(pos);
+			if(c == ',' || c == ']' || c == '}') {
+				emitScalar(anchor, "", PLAIN_IMPLICIT, DumperOptions.ScalarStyle.PLAIN);
+				return;
+			}
+		}
+
+		if(c == '*') {
+			if(anchor != null) {
+				throw UnsupportedException.INSTANCE;
+			}
+			String alias = scanAnchorName();
+			if(sink != null) {
+				sink.event(new AliasEvent(alias, null, null));
+			}
+		} else if(c == '[' || c == '{') {
+			parseFlowCollection(anchor);
+		} else {
+			DumperOptions.ScalarStyle style = scalarStyle(c);
+			if(style == DumperOptions.ScalarStyle.PLAIN && !isPlainStart(c, true)) {
+				throw UnsupportedException.INSTANCE;
+			}
+			String value = style == DumperOptions.ScalarStyle.PLAIN ? scanPlain(true) : scanQuoted(c);
+			emitScalar(anchor, value, implicit(style), style);
+		}
+	}
+
+	/**
+	 * Parses a literal or folded block scalar. The current position is the '|' or '>' of
+	 * the header. The position ends at the start of the line after the scalar.
+	 *
+	 * @param parentIndent The indentation of the parent collection
+	 */
+	private void parseBlockScalar(String anchor, int parentIndent) throws SAXException {
+		boolean folded = text.charAt(pos) == '>';
+		pos++;
+		char chomping = BlockScalar.CLIP;
+		if(pos < end && (text.charAt(pos) == BlockScalar.STRIP || text.charAt(pos) == BlockScalar.KEEP)) {
+			chomping = text.charAt(pos);
+			pos++;
+		}
+		// Indentation indicators aren't supported
+		if(!isBlank(pos)) {
+			throw UnsupportedException.INSTANCE;
+		}
+		expectLineEnd();
+		while(pos < end && text.charAt(pos) != '\n') {
+			pos++;
+		}
+		if(pos < end) {
+			pos++;
+		}
+		int start = pos;
+
+		// The indentation is the indentation of the first line that isn't empty. Empty
+		// lines before it may not be indented further.
+		int minIndent = Math.max(parentIndent + 1, 1);
+		int indent = -1;
+		int maxLeadingIndent = 0;
+		int blockEnd = start;
+		int line = start;
+		while(line < end) {
+			int spaces = 0;
+			while(line + spaces < end && text.charAt(line + spaces) == ' ') {
+				spaces++;
+			}
+			int lineEnd = scanBlockScalarLine(line + spaces);
+			boolean empty = line + spaces == lineEnd;
+			if(indent == -1) {
+				if(empty) {
+					maxLeadingIndent = Math.max(maxLeadingIndent, spaces);
+				} else if(spaces < minIndent || spaces < maxLeadingIndent || text.charAt(line + spaces) == '\t') {
+					throw UnsupportedException.INSTANCE;
+				} else {
+					indent = spaces;
+				}
+			} else if(!empty && spaces < indent) {
+				break;
+			}
+			line = lineEnd < end ? lineEnd + 1 : end;
+			blockEnd = line;
+		}
+		if(indent == -1) {
+			// A block scalar without content
+			throw UnsupportedException.INSTANCE;
+		}
+
+		pos = blockEnd;
+		lineStart = blockEnd;
+
+		if(sink != null) {
+			BlockScalar blockScalar = new BlockScalar(anchor, text, start, blockEnd, indent, folded, chomping);
+			if(blockScalar.getTextLength() >= largeScalarThreshold) {
+				sink.blockScalar(blockScalar);
+			} else {
+				sink.event(blockScalar.toEvent());
+			}
+		}
+	}
+
+	/**
+	 * @return The end of the line of a block scalar. Line breaks that SnakeYAML knows
+	 *         besides '\n' aren't supported.
+	 */
+	private int scanBlockScalarLine(int index) {
+		while(index < end) {
+			char c = text.charAt(index);
+			if(c == '\n') {
+				break;
+			}
+			if(c == '\u0085' || c == '\u2028' || c == '\u2029') {
+				throw UnsupportedException.INSTANCE;
+			}
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * Scans a single line plain scalar. The current position ends at the character that
+	 * ends the scalar, which isn't part of it.
+	 *
+	 * @return The value or <code>null</code> while checking
+	 */
+	private String scanPlain(boolean flow) {
+		int start = pos;
+		int valueEnd = pos;
+		while(pos < end) {
+			char c = text.charAt(pos);
+			if(c == '\n') {
+				break;
+			}
+			if(c == '\t') {
+				throw UnsupportedException.INSTANCE;
+			}
+			if(c == ':' && (isBlank(pos + 1) || flow && isFlowIndicator(pos + 1))) {
+				break;
+			}
+			if(flow && (c == ',' || c == '[' || c == ']' || c == '{' || c == '}')) {
+				break;
+			}
+			if(flow && c == '?') {
+				throw UnsupportedException.INSTANCE;
+			}
+			if(c == '#' && text.charAt(pos - 1) == ' ') {
+				break;
+			}
+			pos++;
+			if(c != ' ') {
+				valueEnd = pos;
+			}
+		}
+		pos = valueEnd;
+		if(valueEnd - start > MAX_SIMPLE_KEY_LENGTH && pos < end && text.charAt(pos) == ':') {
+			throw UnsupportedException.INSTANCE;
+		}
+		return sink != null ? text.substring(start, valueEnd) : null;
+	}
+
+	/**
+	 * Scans a single line quoted scalar. The current position is the opening quote.
+	 *
+	 * @return The value or <code>null</code> while checking
+	 */
+	private String scanQuoted(char quote) {
+		pos++;
+		int start = pos;
+		buffer.setLength(0);
+		boolean escaped = false;
+		while(true) {
+			if(pos >= end) {
+				throw UnsupportedException.INSTANCE;
+			}
+			char c = text.charAt(pos);
+			if(c == '\n') {
+				throw UnsupportedException.INSTANCE;
+			}
+			if(c == quote) {
+				if(quote == '\'' && pos + 1 < end && text.charAt(pos + 1) == '\'') {
+					buffer.append(text, start, pos + 1);
+					pos += 2;
+					start = pos;
+					escaped = true;
+					continue;
+				}
+				break;
+			}
+			if(c == '\\' && quote == '"') {
+				buffer.append(text, start, pos);
+				pos = scanEscape(pos + 1);
+				start = pos;
+				escaped = true;
+				continue;
+			}
+			pos++;
+		}
+
+		String value = null;
+		if(sink != null) {
+			value = escaped ? buffer.append(text, start, pos).toString() : text.substring(start, pos);
+		}
+		// Skip the closing quote
+		pos++;
+		return value;
+	}
+
+	/**
+	 * Appends the character of the escape sequence to the buffer.
+	 *
+	 * @param index The index of the character after the backslash
+	 * @return The index after the escape sequence
+	 */
+	private int scanEscape(int index) {
+		if(index >= end) {
+			throw UnsupportedException.INSTANCE;
+		}
+		char c = text.charAt(index);
+		switch(c) {
+			case '0': buffer.append('\0'); break;
+			case 'a': buffer.append('\u0007'); break;
+			case 'b': buffer.append('\b'); break;
+			case 't':
+			case '\t': buffer.append('\t'); break;
+			case 'n': buffer.append('\n'); break;
+			case 'v': buffer.append('\u000B'); break;
+			case 'f': buffer.append('\f'); break;
+			case 'r': buffer.append('\r'); break;
+			case 'e': buffer.append('\u001B'); break;
+			case ' ': buffer.append(' '); break;
+			case '"': buffer.append('"'); break;
+			case '\\': buffer.append('\\'); break;
+			case 'N': buffer.append('\u0085'); break;
+			case '_': buffer.append('\u00A0'); break;
+			case 'L': buffer.append('\u2028'); break;
+			case 'P': buffer.append('\u2029'); break;
+			case 'x': return scanHexEscape(index + 1, 2);
+			case 'u': return scanHexEscape(index + 1, 4);
+			case 'U': return scanHexEscape(index + 1, 8);
+			default: throw UnsupportedException.INSTANCE;
+		}
+		return index + 1;
+	}
+
+	private int scanHexEscape(int index, int length) {
+		if(index + length > end) {
+			throw UnsupportedException.INSTANCE;
+		}
+		int codePoint = 0;
+		for(int i = index; i < index + length; i++) {
+			int digit = Character.digit(text.charAt(i), 16);
+			if(digit < 0) {
+				throw UnsupportedException.INSTANCE;
+			}
+			codePoint = (codePoint << 4) | digit;
+		}
+		if(!Character.isValidCodePoint(codePoint)) {
+			throw UnsupportedException.INSTANCE;
+		}
+		buffer.appendCodePoint(codePoint);
+		return index + length;
+	}
+
+	/**
+	 * Scans the name of an anchor or alias. The current position is the '&amp;' or '*'.
+	 * Only the common anchor characters are supported.
+	 */
+	private String scanAnchorName() {
+		pos++;
+		int start = pos;
+		while(pos < end) {
+			char c = text.charAt(pos);
+			if((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '-') {
+				pos++;
+			} else {
+				break;
+			}
+		}
+		if(pos == start || !(isBlank(pos) || isFlowIndicator(pos))) {
+			throw UnsupportedException.INSTANCE;
+		}
+		return text.substring(start, pos);
+	}
+
+	/**
+	 * Skips spaces and, if there are any, the comment and the empty lines after them.
+	 */
+	private void skipBlank() {
+		while(pos < end) {
+			char c = text.charAt(pos);
+			if(c == ' ') {
+				pos++;
+			} else if(c == '\n') {
+				pos++;
+				lineStart = pos;
+			} else if(c == '#') {
+				while(pos < end && text.charAt(pos) != '\n') {
+					pos++;
+				}
+			} else if(c == '\t') {
+				throw UnsupportedException.INSTANCE;
+			} else {
+				break;
+			}
+		}
+	}
+
+	private void skipSpaces() {
+		while(pos < end) {
+			char c = text.charAt(pos);
+			if(c == ' ') {
+				pos++;
+			} else if(c == '\t') {
+				throw UnsupportedException.INSTANCE;
+			} else {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Checks that only spaces and a comment follow on the current line.
+	 */
+	private void expectLineEnd() {
+		int start = pos;
+		skipSpaces();
+		if(pos < end) {
+			char c = text.charAt(pos);
+			if(c != '\n' && !(c == '#' && pos > start)) {
+				throw UnsupportedException.INSTANCE;
+			}
+		}
+	}
+
+	private int column() {
+		return pos - lineStart;
+	}
+
+	private boolean isSequenceEntry() {
+		return text.charAt(pos) == '-' && isBlank(pos + 1);
+	}
+
+	/**
+	 * @return if the rest of the line contains a mapping key indicator
+	 */
+	private boolean isKeyAhead() {
+		for(int i = pos; i < end && text.charAt(i) != '\n'; i++) {
+			if(text.charAt(i) == ':' && isBlank(i + 1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isMarker(int index, char markerChar) {
+		return index + 3 <= end
+				&& text.charAt(index) == markerChar && text.charAt(index + 1) == markerChar && text.charAt(index + 2) == markerChar
+				&& isBlank(index + 3);
+	}
+
+	/**
+	 * @return if the character is blank, a line break or the end of the document
+	 */
+	private boolean isBlank(int index) {
+		if(index >= end) {
+			return true;
+		}
+		char c = text.charAt(index);
+		return c == ' ' || c == '\n' || c == '\t';
+	}
+
+	private boolean isFlowIndicator(int index) {
+		if(index >= end) {
+			return false;
+		}
+		char c = text.charAt(index);
+		return c == ',' || c == '[' || c == ']' || c == '{' || c == '}';
+	}
+
+	/**
+	 * @return if a plain scalar can start with the character. Plain scalars that start
+	 *         with an indicator character aren't supported, except for a '-' that isn't
+	 *         a sequence entry, like in negative numbers.
+	 */
+	private boolean isPlainStart(char c, boolean flow) {
+		switch(c) {
+			case '-':
+				return !isBlank(pos + 1) && !(flow && isFlowIndicator(pos + 1));
+			case '?':
+			case ':':
+			case ',':
+			case '[':
+			case ']':
+			case '{':
+			case '}':
+			case '#':
+			case '&':
+			case '*':
+			case '!':
+			case '|':
+			case '>':
+			case '\'':
+			case '"':
+			case '%':
+			case '@':
+			case '`':
+			case '\t':
+				return false;
+			default:
+				return true;
+		}
+	}
+
+	private DumperOptions.ScalarStyle scalarStyle(char c) {
+		if(c == '"') {
+			return DumperOptions.ScalarStyle.DOUBLE_QUOTED;
+		}
+		if(c == '\'') {
+			return DumperOptions.ScalarStyle.SINGLE_QUOTED;
+		}
+		if(!isPlainStart(c, false)) {
+			throw UnsupportedException.INSTANCE;
+		}
+		return DumperOptions.ScalarStyle.PLAIN;
+	}
+
+	private static ImplicitTuple implicit(DumperOptions.ScalarStyle style) {
+		return style == DumperOptions.ScalarStyle.PLAIN ? PLAIN_IMPLICIT : QUOTED_IMPLICIT;
+	}
+
+	private void emitScalar(String anchor, String value, ImplicitTuple implicit, DumperOptions.ScalarStyle style) throws SAXException {
+		if(sink != null) {
+			sink.event(new ScalarEvent(anchor, null, implicit, value, null, null, style));
+		}
+	}
+
+	private void emit(Event event) throws SAXException {
+		if(sink != null) {
+			sink.event(event);
+		}
+	}
+
+	/**
+	 * Thrown when a document isn't in the supported subset. It has no stack trace,
+	 * because it is only used to stop the check of the document.
+	 */
+	private static final class UnsupportedException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private static final UnsupportedException INSTANCE = new UnsupportedException();
+
+		private UnsupportedException() {
+			super("The YAML document isn't in the subset that is supported by the native parser", null, false, false);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ElementNameFormatterTest {
+
+    private static final Pattern ILLEGAL_ELEMENT_NAME_PATTERN = Pattern.compile("^[.]|[^a-zA-Z0-9_.-]");
+
+    private static final String[] NAMES = {
+            "", "name", "Name_1.a-b", ".", "..", ".name", "name.", "a.b", "-name", "_", "1",
+            "some key", "some&key", "a\u00E9b", "\u00E9", "a\uD83D\uDE00b", "\uD83D\uDE00", "\uD83D", "a\uDE00", "\uDE00\uD83D",
+            "a\uD83D", ".\uD83D\uDE00.", "\u0000", "\u007f", "tab\tkey", "line\nkey", "[key]", "key:value"
+    };
+
+    @Test
+    public void test_illegal_chars_replaced_like_regex() {
+        for (String replacement : new String[]{".", "_", "", "xyz", "\uD83D\uDE00"}) {
+            ElementNameFormatter formatter = new ElementNameFormatter(Collections.<String, String>emptyMap(), null, null, replacement, 0);
+
+            for (String name : NAMES) {
+                assertEquals(name, ILLEGAL_ELEMENT_NAME_PATTERN.matcher(name).replaceAll(replacement), formatter.format(name));
+            }
+        }
+    }
+
+    @Test
+    public void test_illegal_chars_replaced_like_regex_random() {
+        char[] chars = {'a', 'Z', '0', '_', '.', '-', ' ', '&', '\u00E9', '\u4E2D', '\uD83D', '\uDE00', '\uFEFF'};
+        Random random = new Random(42);
+        ElementNameFormatter formatter = new ElementNameFormatter(Collections.<String, String>emptyMap(), null, null, "_", 0);
+
+        for (int i = 0; i < 10000; i++) {
+            char[] name = new char[random.nextInt(8)];
+            for (int j = 0; j < name.length; j++) {
+                name[j] = chars[random.nextInt(chars.length)];
+            }
+            String text = new String(name);
+
+            assertEquals(text, ILLEGAL_ELEMENT_NAME_PATTERN.matcher(text).replaceAll("_"), formatter.format(text));
+        }
+    }
+
+    @Test
+    public void test_regex_replacement_syntax() {
+        ElementNameFormatter formatter = new ElementNameFormatter(Collections.<String, String>emptyMap(), null, null, "\\$", 0);
+
+        assertEquals("a$b", formatter.format("a b"));
+    }
+
+    @Test
+    public void test_legal_name_not_copied() {
+        ElementNameFormatter formatter = new ElementNameFormatter(Collections.<String, String>emptyMap(), null, null, "_", 0);
+        String name = new String("some.legal_name-1");
+
+        assertSame(name, formatter.format(name));
+    }
+}
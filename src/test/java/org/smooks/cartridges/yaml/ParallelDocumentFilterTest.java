@@ -0,0 +1,115 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml;
+
+import org.junit.After;
+import org.junit.Test;
+import org.smooks.Smooks;
+import org.smooks.api.SmooksException;
+import org.smooks.io.payload.StringResult;
+import org.smooks.io.payload.StringSource;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelDocumentFilterTest {
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    @After
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void test_results_in_document_order() throws Exception {
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator());
+
+        StringBuilder yaml = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String document = "---\nid: " + i + "\nvalues: [a, " + i + "]\n";
+            yaml.append(document);
+
+            StringResult result = new StringResult();
+            smooks.filterSource(new StringSource(document), result);
+            expected.add(result.getResult());
+        }
+
+        final List<String> actual = new ArrayList<>();
+        final List<Integer> documentIndexes = new ArrayList<>();
+        int documentCount = new ParallelDocumentFilter(smooks, executorService, 8).filter(new StringReader(yaml.toString()), StringResult::new, (documentIndex, executionContext, result) -> {
+            documentIndexes.add(documentIndex);
+            actual.add(result.getResult());
+        });
+
+        assertEquals(500, documentCount);
+        assertEquals(expected, actual);
+        for (int i = 0; i < documentIndexes.size(); i++) {
+            assertEquals(i, (int) documentIndexes.get(i));
+        }
+    }
+
+    @Test
+    public void test_failing_document() throws Exception {
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator());
+
+        final List<Integer> documentIndexes = new ArrayList<>();
+        try {
+            new ParallelDocumentFilter(smooks, executorService, 2).filter(new StringReader("---\na: 1\n---\nb: [\n---\nc: 3\n---\nd: 4\n"), StringResult::new, (documentIndex, executionContext, result) -> documentIndexes.add(documentIndex));
+            fail("Expected exception was not thrown!");
+        } catch (SmooksException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Failed to filter YAML document 1."));
+        }
+        assertEquals(1, documentIndexes.size());
+    }
+}
@@ -44,21 +44,67 @@ package org.smooks.cartridges.yaml;
 
 import org.custommonkey.xmlunit.XMLAssert;
 import org.custommonkey.xmlunit.XMLUnit;
+import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.smooks.Smooks;
 import org.smooks.api.ExecutionContext;
+import org.smooks.api.Registry;
+import org.smooks.api.SmooksConfigException;
 import org.smooks.api.SmooksException;
+import org.smooks.api.resource.config.ResourceConfig;
+import org.smooks.api.resource.visitor.sax.ng.AfterVisitor;
+import org.smooks.cartridges.yaml.metrics.JmxReaderMetrics;
+import org.smooks.cartridges.yaml.metrics.ParseStatistics;
+import org.smooks.cartridges.yaml.metrics.ReaderMetrics;
+import org.smooks.engine.injector.Scope;
+import org.smooks.engine.lifecycle.PostConstructLifecyclePhase;
+import org.smooks.engine.lookup.LifecycleManagerLookup;
+import org.smooks.io.payload.StringResult;
+import org.smooks.io.payload.StringSource;
 import org.smooks.support.SmooksUtil;
 import org.smooks.support.StreamUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-
+import org.xml.sax.helpers.XMLFilterImpl;
+import org.yaml.snakeyaml.events.Event;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 /**
@@ -68,6 +114,9 @@ public class YamlReaderTest {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(YamlReaderTest.class);
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void test_yaml_types() throws Exception {
         testBasic("yaml_types");
@@ -214,6 +263,76 @@ public class YamlReaderTest {
         testProgrammaticConfig("alias_with_resolve", smooks);
     }
 
+    @Test
+    public void test_alias_with_resolve_nested_anchors() throws Exception {
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE));
+        testProgrammaticConfig("alias_with_resolve_nested_anchors", smooks);
+    }
+
+    @Test
+    public void test_alias_with_resolve_anchor_memory_budget() throws Exception {
+        int tempFileCount = countAnchorTempFiles();
+
+        for (long anchorMemoryBudget : new long[]{0, 500}) {
+            Smooks smooks = new Smooks();
+            smooks.setReaderConfig(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE).setAnchorMemoryBudget(anchorMemoryBudget));
+            testProgrammaticConfig("alias_with_resolve", smooks);
+            testProgrammaticConfig("alias_with_resolve_nested_anchors", smooks);
+
+            smooks = new Smooks();
+            smooks.setReaderConfig(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.REFER_RESOLVE).setAnchorMemoryBudget(anchorMemoryBudget));
+            testProgrammaticConfig("alias_with_refer_resolve", smooks);
+        }
+
+        Assert.assertEquals(tempFileCount, countAnchorTempFiles());
+    }
+
+    private int countAnchorTempFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(System.getProperty("java.io.tmpdir")), "smooks-yaml-anchors*")) {
+            int count = 0;
+            for (Path ignored : files) {
+                count++;
+            }
+            return count;
+        }
+    }
+
+    @Test
+    public void test_alias_with_resolve_anchors_scoped_to_document() throws Exception {
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE));
+
+        StringResult result = new StringResult();
+        smooks.filterSource(new StringSource("---\na: &x {b: 1}\nc: *x\n---\na: &x {b: 2}\nc: *x\n"), result);
+
+        XMLUnit.setIgnoreWhitespace(true);
+        XMLAssert.assertXMLEqual("<yaml><document><a><b>1</b></a><c><b>1</b></c></document><document><a><b>2</b></a><c><b>2</b></c></document></yaml>", result.getResult());
+
+        try {
+            smooks.filterSource(new StringSource("---\na: &x {b: 1}\n---\nc: *x\n"), new StringResult());
+        } catch (SmooksException e) {
+
+            Throwable cause = e.getCause();
+
+            assertArrayEquals("A non existing anchor with the name 'x' is referenced by the alias of the element 'c'. The anchor must be declared before it can be referenced by an alias.".toCharArray(), cause.getMessage().toCharArray());
+
+            return;
+        }
+        fail("Expected exception was not thrown!");
+    }
+
+    @Test
+    public void test_alias_with_resolve_with_anchor_within_same_name_anchor() throws Exception {
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE));
+        StringResult result = new StringResult();
+        smooks.filterSource(new StringSource("a: &id1\n   b: &id1\n      c: 1\nd: *id1\n"), result);
+
+        // The alias refers to the last anchor with the name
+        Assert.assertEquals("<yaml><document><a><b><c>1</c></b></a><d><c>1</c></d></document></yaml>", result.getResult());
+    }
+
     @Test
     public void test_alias_with_resolve_without_anchor() throws Exception {
         try {
@@ -294,6 +413,551 @@ public class YamlReaderTest {
     }
 
 
+    @Test
+    public void test_byte_stream_encodings() throws Exception {
+        String input = StreamUtils.readStreamAsString(getClass().getResourceAsStream("/test/yaml_map/input-message.yaml"), "UTF-8");
+
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setIndent(true).setPreferByteStream(true));
+
+        for (String encoding : new String[]{"UTF-8", "UTF-16BE", "UTF-16LE", "UTF-32BE", "UTF-32LE"}) {
+            for (String bom : new String[]{"", "\uFEFF"}) {
+                byte[] bytes = (bom + input).getBytes(encoding);
+
+                String result = SmooksUtil.filterAndSerialize(smooks.createExecutionContext(), new ByteArrayInputStream(bytes), smooks);
+
+                assertEquals("/test/yaml_map/expected.xml", result.getBytes());
+            }
+        }
+    }
+
+    @Test
+    public void test_byte_stream_larger_than_buffer() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            input.append("key").append(i).append(": \u00e4\u00f6\u00fc \u20ac ").append(i).append('\n');
+        }
+
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setPreferByteStream(true));
+
+        StringResult expected = new StringResult();
+        smooks.filterSource(smooks.createExecutionContext(), new StringSource(input.toString()), expected);
+
+        for (String encoding : new String[]{"UTF-8", "UTF-16LE"}) {
+            byte[] bytes = input.toString().getBytes(encoding);
+
+            String result = SmooksUtil.filterAndSerialize(smooks.createExecutionContext(), new ByteArrayInputStream(bytes), smooks);
+
+            XMLUnit.setIgnoreWhitespace(true);
+            XMLAssert.assertXMLEqual(expected.getResult(), result);
+        }
+    }
+
+    @Test
+    public void test_byte_stream_with_character_stream() throws Exception {
+        // The character stream has precedence, unless the reader is configured to prefer the byte stream
+        for (boolean preferByteStream : new boolean[]{false, true}) {
+            Smooks smooks = new Smooks();
+            YamlReader yamlReader = createYamlReader(smooks, new YamlReaderConfigurator().setPreferByteStream(preferByteStream));
+
+            InputSource inputSource = new InputSource(new InputStreamReader(new ByteArrayInputStream("character: stream\n".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8));
+            inputSource.setByteStream(new ByteArrayInputStream("byte: stream\n".getBytes(StandardCharsets.UTF_8)));
+
+            final List<String> elementNames = new ArrayList<String>();
+            yamlReader.setExecutionContext(smooks.createExecutionContext());
+            yamlReader.setContentHandler(new XMLFilterImpl() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes atts) {
+                    elementNames.add(localName);
+                }
+            });
+            yamlReader.parse(inputSource);
+
+            Assert.assertEquals(preferByteStream ? "byte" : "character", elementNames.get(2));
+        }
+    }
+
+    @Test
+    public void test_system_id_file() throws Exception {
+        String input = StreamUtils.readStreamAsString(getClass().getResourceAsStream("/test/yaml_map_array_map/input-message.yaml"), "UTF-8");
+
+        Path file = temporaryFolder.newFile("input-message.yaml").toPath();
+        Files.write(file, ("\uFEFF" + input).getBytes("UTF-16LE"));
+
+        Smooks smooks = new Smooks();
+        YamlReader yamlReader = createYamlReader(smooks, new YamlReaderConfigurator().setIndent(true));
+
+        for (String systemId : new String[]{file.toUri().toString(), file.toString()}) {
+            StringWriter result = new StringWriter();
+            TransformerHandler transformerHandler = ((SAXTransformerFactory) TransformerFactory.newInstance()).newTransformerHandler();
+            transformerHandler.setResult(new StreamResult(result));
+
+            yamlReader.setExecutionContext(smooks.createExecutionContext());
+            yamlReader.setContentHandler(new LocalNameToQNameFilter(transformerHandler));
+            yamlReader.parse(systemId);
+
+            assertEquals("/test/yaml_map_array_map/expected.xml", result.toString().getBytes());
+        }
+    }
+
+    @Test
+    public void test_element_name_formatter_shared_per_config() throws Exception {
+        Smooks smooks = new Smooks();
+        ResourceConfig resourceConfig = new YamlReaderConfigurator().setKeyWhitspaceReplacement("_").toConfig().get(0);
+
+        YamlReader yamlReader1 = createYamlReader(smooks, resourceConfig);
+        YamlReader yamlReader2 = createYamlReader(smooks, resourceConfig);
+        YamlReader yamlReader3 = createYamlReader(smooks, new YamlReaderConfigurator().setKeyWhitspaceReplacement("_"));
+
+        assertSame(yamlReader1.getElementNameFormatter(), yamlReader2.getElementNameFormatter());
+        assertNotSame(yamlReader1.getElementNameFormatter(), yamlReader3.getElementNameFormatter());
+
+        for (YamlReader yamlReader : new YamlReader[]{yamlReader1, yamlReader2}) {
+            yamlReader.setExecutionContext(smooks.createExecutionContext());
+            yamlReader.setContentHandler(new XMLFilterImpl());
+            yamlReader.parse(new InputSource(new StringReader("some key: 1\nsome other key: 2\nsome key: 3\n")));
+        }
+
+        ElementNameFormatter elementNameFormatter = yamlReader1.getElementNameFormatter();
+        Assert.assertEquals(2, elementNameFormatter.getCacheMisses());
+        Assert.assertEquals(4, elementNameFormatter.getCacheHits());
+    }
+
+    @Test
+    public void test_large_scalar_value() throws Exception {
+        // The offset puts a surrogate pair on the boundary of the first chunk
+        StringBuilder value = new StringBuilder("xy");
+        while (value.length() < 200000) {
+            value.append("abc\uD83D\uDE00");
+        }
+
+        Smooks smooks = new Smooks();
+        YamlReader yamlReader = createYamlReader(smooks, new YamlReaderConfigurator());
+
+        final StringBuilder characters = new StringBuilder();
+        final List<Integer> chunkLengths = new ArrayList<Integer>();
+        yamlReader.setExecutionContext(smooks.createExecutionContext());
+        yamlReader.setContentHandler(new XMLFilterImpl() {
+            @Override
+            public void characters(char[] ch, int start, int length) {
+                characters.append(ch, start, length);
+                chunkLengths.add(length);
+            }
+        });
+        yamlReader.parse(new InputSource(new StringReader("key: " + value + "\n")));
+
+        Assert.assertEquals(value.toString(), characters.toString());
+        for (int chunkLength : chunkLengths) {
+            Assert.assertTrue(chunkLength <= 64 * 1024);
+        }
+    }
+
+    @Test
+    public void test_concurrent_parses() throws Exception {
+        final String input = StreamUtils.readStreamAsString(getClass().getResourceAsStream("/test/alias_with_resolve/input-message.yaml"), "UTF-8");
+
+        final Smooks smooks = new Smooks();
+        final YamlReader yamlReader = createYamlReader(smooks, new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 200; i++) {
+                final boolean failing = i % 10 == 0;
+                results.add(executorService.submit(() -> {
+                    StringWriter result = new StringWriter();
+                    TransformerHandler transformerHandler = ((SAXTransformerFactory) TransformerFactory.newInstance()).newTransformerHandler();
+                    transformerHandler.setResult(new StreamResult(result));
+                    try {
+                        yamlReader.parse(new InputSource(new StringReader(failing ? "a: &id1\n  b: *id1\n" : input)), new LocalNameToQNameFilter(transformerHandler), smooks.createExecutionContext());
+                    } catch (SAXException e) {
+                        return failing ? null : e.toString();
+                    }
+                    return result.toString();
+                }));
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                String result = results.get(i).get();
+                if (i % 10 == 0) {
+                    Assert.assertNull(result);
+                } else {
+                    assertEquals("/test/alias_with_resolve/expected.xml", result.getBytes());
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_pipelined() throws Exception {
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setIndent(true).setPipelined(true).setPipelineCapacity(4));
+        testProgrammaticConfig("yaml_map_array_map", smooks);
+        testProgrammaticConfig("yaml_multi_documents", smooks);
+
+        smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE).setPipelined(true).setPipelineCapacity(4));
+        testProgrammaticConfig("alias_with_resolve", smooks);
+        testProgrammaticConfig("alias_with_resolve_nested_anchors", smooks);
+
+        try {
+            testProgrammaticConfig("alias_with_resolve_without_anchor", smooks);
+            fail("Expected exception was not thrown!");
+        } catch (SmooksException e) {
+            Assert.assertEquals("A non existing anchor with the name 'id1' is referenced by the alias of the element 'keyWithAlias'. The anchor must be declared before it can be referenced by an alias.", e.getCause().getMessage());
+        }
+
+        PipelineExecutor pipelineExecutor = smooks.getApplicationContext().getRegistry().lookup(PipelineExecutor.class);
+        Assert.assertFalse(pipelineExecutor.isShutdown());
+        smooks.close();
+        Assert.assertTrue(pipelineExecutor.isShutdown());
+    }
+
+    @Test
+    public void test_pipelined_consumer_failure() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            input.append("key").append(i).append(": value").append(i).append('\n');
+        }
+
+        Smooks smooks = new Smooks();
+        YamlReader yamlReader = createYamlReader(smooks, new YamlReaderConfigurator().setPipelined(true).setPipelineCapacity(8));
+
+        for (int i = 0; i < 2; i++) {
+            yamlReader.setExecutionContext(smooks.createExecutionContext());
+            yamlReader.setContentHandler(new XMLFilterImpl() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+                    if (localName.equals("key100")) {
+                        throw new SAXException("Stop");
+                    }
+                }
+            });
+            try {
+                yamlReader.parse(new InputSource(new StringReader(input.toString())));
+                fail("Expected exception was not thrown!");
+            } catch (SAXException e) {
+                Assert.assertEquals("Stop", e.getMessage());
+            }
+        }
+
+        final StringBuilder characters = new StringBuilder();
+        yamlReader.setExecutionContext(smooks.createExecutionContext());
+        yamlReader.setContentHandler(new XMLFilterImpl() {
+            @Override
+            public void characters(char[] ch, int start, int length) {
+                characters.append(ch, start, length);
+            }
+        });
+        yamlReader.parse(new InputSource(new StringReader(input.toString())));
+        Assert.assertTrue(characters.toString().endsWith("value9998value9999"));
+    }
+
+    @Test
+    public void test_native_tokenizer() throws Exception {
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setIndent(true).setNativeTokenizer(true));
+        testProgrammaticConfig("yaml_map_array_map", smooks);
+        testProgrammaticConfig("yaml_multi_documents", smooks);
+        testProgrammaticConfig("yaml_types", smooks);
+        testProgrammaticConfig("indent", smooks);
+
+        smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE).setNativeTokenizer(true).setPipelined(true));
+        testProgrammaticConfig("alias_with_resolve", smooks);
+        testProgrammaticConfig("alias_with_resolve_nested_anchors", smooks);
+    }
+
+    @Test
+    public void test_large_block_scalars() throws Exception {
+        StringBuilder lines = new StringBuilder();
+        while (lines.length() < 200000) {
+            lines.append("    abc\uD83D\uDE00 def\n\n    ghi\n      more indented\n");
+        }
+        String input = "literal: |\n" + lines + "folded: >-\n" + lines + "anchored: &a |+\n" + lines + "\nalias: *a\nitems:\n  - >\n" + lines;
+
+        String expected = filter(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE), input);
+        Assert.assertEquals(expected, filter(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE).setNativeTokenizer(true).setLargeScalarThreshold(1), input));
+        Assert.assertEquals(expected, filter(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE).setNativeTokenizer(true).setLargeScalarThreshold(1).setPipelined(true), input));
+        Assert.assertEquals(filter(new YamlReaderConfigurator(), input), filter(new YamlReaderConfigurator().setNativeTokenizer(true).setLargeScalarThreshold(1024), input));
+
+        Smooks smooks = new Smooks();
+        YamlReader yamlReader = createYamlReader(smooks, new YamlReaderConfigurator().setNativeTokenizer(true).setLargeScalarThreshold(1));
+        final List<Integer> chunkLengths = new ArrayList<Integer>();
+        yamlReader.setExecutionContext(smooks.createExecutionContext());
+        yamlReader.setContentHandler(new XMLFilterImpl() {
+            @Override
+            public void characters(char[] ch, int start, int length) {
+                chunkLengths.add(length);
+            }
+        });
+        yamlReader.parse(new InputSource(new StringReader(input)));
+        for (int chunkLength : chunkLengths) {
+            Assert.assertTrue(chunkLength <= 64 * 1024);
+        }
+
+        try {
+            createYamlReader(new Smooks(), new YamlReaderConfigurator().setLargeScalarThreshold(1));
+            fail("Expected exception was not thrown!");
+        } catch (SmooksConfigException e) {
+            Assert.assertEquals("The 'largeScalarThreshold' parameter requires the 'nativeTokenizer' parameter to be 'true'.", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void test_projection() throws Exception {
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE)
+                .setProjectionPaths("/document/metadata/name", "/document/spec/containers/*/image", "/document/spec/selector"));
+        testProgrammaticConfig("projection", smooks);
+
+        smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setIndent(true).setProjectionPaths("/document/map/*/key"));
+        testProgrammaticConfig("yaml_map_array_map", smooks);
+
+        smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setIndent(true).setProjectionPaths("/**"));
+        testProgrammaticConfig("yaml_multi_documents", smooks);
+
+        // The aliases of the skipped elements are validated as if the elements were needed
+        for (String projectionPath : new String[] {"/document/c", "/document/c/**", "/document/c/b"}) {
+            smooks = new Smooks();
+            smooks.setReaderConfig(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE).setProjectionPaths(projectionPath));
+            try {
+                smooks.filterSource(new StringSource("a: &x\n  b: *x\nc: *x\n"), new StringResult());
+                fail("Expected exception was not thrown!");
+            } catch (SmooksException e) {
+                Assert.assertEquals("The alias to anchor 'x' is declared within the element structure in which on of the parent elements declares the anchor. This is not allowed because it leads to infinite loops.", e.getCause().getMessage());
+            }
+        }
+
+        smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE).setProjectionPaths("/document/c"));
+        try {
+            smooks.filterSource(new StringSource("a: *nope\nc: 1\n"), new StringResult());
+            fail("Expected exception was not thrown!");
+        } catch (SmooksException e) {
+            Assert.assertEquals("A non existing anchor with the name 'nope' is referenced by an alias. The anchor must be declared before it can be referenced by an alias.", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void test_auto_projection() throws Exception {
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE).setAutoProjection(true));
+        smooks.addVisitor((AfterVisitor) (element, executionContext) -> {}, "/yaml/document/metadata/name");
+        smooks.addVisitor((AfterVisitor) (element, executionContext) -> {}, "/yaml/document/spec/containers/*/image");
+        smooks.addVisitor((AfterVisitor) (element, executionContext) -> {}, "#document/yaml/document/spec/selector/@ref");
+        testProgrammaticConfig("projection", smooks);
+
+        smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setAutoProjection(true));
+        smooks.addVisitor((AfterVisitor) (element, executionContext) -> {}, "metadata/name");
+        StringResult result = new StringResult();
+        smooks.filterSource(new StringSource("metadata:\n  name: web\nspec:\n  containers:\n    - image: nginx\n"), result);
+        Assert.assertEquals("<yaml><document><metadata><name>web</name></metadata><spec><containers><element/></containers></spec></document></yaml>", result.getResult());
+
+        smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setIndent(true).setAutoProjection(true));
+        smooks.addVisitor((AfterVisitor) (element, executionContext) -> {}, "map/*/key");
+        smooks.addVisitor((AfterVisitor) (element, executionContext) -> {}, "*");
+        testProgrammaticConfig("yaml_map_array_map", smooks);
+    }
+
+    @Test
+    public void test_stop_after() throws Exception {
+        // The unclosed flow sequence after the needed elements is never parsed
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setStopAfterPaths("/document/metadata"));
+        StringResult result = new StringResult();
+        smooks.filterSource(new StringSource("metadata:\n  name: web\nspec:\n  a: 1\n  b: 2\n  containers: [\n"), result);
+        Assert.assertEquals("<yaml><document><metadata><name>web</name></metadata></document></yaml>", result.getResult());
+
+        for (boolean nativeTokenizer : new boolean[] {false, true}) {
+            smooks = new Smooks();
+            smooks.setReaderConfig(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE).setPipelined(nativeTokenizer).setNativeTokenizer(nativeTokenizer)
+                    .setStopAfterPaths("/document/spec/containers/*/image", "/document/metadata/name"));
+            result = new StringResult();
+            smooks.filterSource(new StringSource("metadata:\n  name: &name web\nspec:\n  containers:\n    - image: *name\n      name: nginx\n    - image: busybox\n"), result);
+            Assert.assertEquals("<yaml><document><metadata><name>web</name></metadata><spec><containers><element><image>web</image></element></containers></spec></document></yaml>", result.getResult());
+        }
+
+        smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setStopAfterDocuments(2).setStopAfterPaths("/document/c"));
+        result = new StringResult();
+        smooks.filterSource(new StringSource("a: 1\n---\nb: 2\n---\nc: [\n"), result);
+        Assert.assertEquals("<yaml><document><a>1</a></document><document><b>2</b></document></yaml>", result.getResult());
+    }
+
+    @Test
+    public void test_metrics() throws Exception {
+        List<ParseStatistics> statistics = new ArrayList<>();
+        Smooks smooks = new Smooks();
+        smooks.getApplicationContext().getRegistry().registerObject(ReaderMetrics.class, (ReaderMetrics) statistics::add);
+        smooks.setReaderConfig(new YamlReaderConfigurator().setAliasStrategy(AliasStrategy.RESOLVE).setPreferByteStream(true).setMetrics(true));
+        SmooksUtil.filterAndSerialize(smooks.createExecutionContext(), new ByteArrayInputStream("a: &a\n  b: 1\nc: *a\nd: *a\n".getBytes(StandardCharsets.UTF_8)), smooks);
+
+        Assert.assertEquals(1, statistics.size());
+        ParseStatistics parseStatistics = statistics.get(0);
+        Assert.assertFalse(parseStatistics.isFailed());
+        Assert.assertEquals(25, parseStatistics.getBytesRead());
+        Assert.assertEquals(25, parseStatistics.getCharsRead());
+        Assert.assertEquals(2, parseStatistics.getEventCount(Event.ID.MappingStart));
+        Assert.assertEquals(5, parseStatistics.getEventCount(Event.ID.Scalar));
+        Assert.assertEquals(2, parseStatistics.getEventCount(Event.ID.Alias));
+        Assert.assertEquals(15, parseStatistics.getEventCount());
+        // yaml, document, a, b, c, b, d and b
+        Assert.assertEquals(8, parseStatistics.getElementCount());
+        Assert.assertEquals(2, parseStatistics.getMaxDepth());
+        Assert.assertEquals(1, parseStatistics.getAnchorCount());
+        Assert.assertEquals(2, parseStatistics.getAliasExpansionCount());
+        Assert.assertTrue(parseStatistics.getContentHandlerNanos() > 0);
+        Assert.assertTrue(parseStatistics.getParseNanos() > 0);
+
+        try {
+            smooks.filterSource(new StringSource("a: *b\n"), new StringResult());
+            fail("Expected exception was not thrown!");
+        } catch (SmooksException e) {
+            Assert.assertTrue(statistics.get(1).isFailed());
+            Assert.assertEquals(-1, statistics.get(1).getBytesRead());
+        }
+
+        smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setMetrics(true));
+        smooks.filterSource(new StringSource("a: 1\n---\nb: 2\n"), new StringResult());
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        Set<ObjectName> objectNames = mBeanServer.queryNames(new ObjectName(JmxReaderMetrics.DOMAIN + ":type=YamlReader,rootName=\"yaml\",*"), null);
+        Assert.assertEquals(1, objectNames.size());
+        ObjectName objectName = objectNames.iterator().next();
+        Assert.assertEquals(1L, mBeanServer.getAttribute(objectName, "ParseCount"));
+        Assert.assertEquals(2L, mBeanServer.getAttribute(objectName, "DocumentCount"));
+        Assert.assertEquals(4L, mBeanServer.getAttribute(objectName, "ScalarCount"));
+
+        smooks.close();
+        Assert.assertFalse(mBeanServer.isRegistered(objectName));
+    }
+
+    @Test
+    public void test_typed_scalars() throws Exception {
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setTypeAttributeName("type"));
+        testProgrammaticConfig("yaml_types_typed", smooks);
+
+        for (boolean pipelined : new boolean[]{false, true}) {
+            List<TypedScalar> typedScalars = new ArrayList<>();
+            List<TypedScalar> documentTypedScalars = new ArrayList<>();
+            smooks = new Smooks();
+            smooks.setReaderConfig(new YamlReaderConfigurator().setTypedValues(true).setPipelined(pipelined));
+            smooks.addVisitor((AfterVisitor) (element, executionContext) -> typedScalars.add(executionContext.get(YamlReader.TYPED_SCALAR)), "/yaml/document/element");
+            smooks.addVisitor((AfterVisitor) (element, executionContext) -> documentTypedScalars.add(executionContext.get(YamlReader.TYPED_SCALAR)), "/yaml/document");
+            ExecutionContext context = smooks.createExecutionContext();
+            SmooksUtil.filterAndSerialize(context, getClass().getResourceAsStream("/test/yaml_types_typed/input-message.yaml"), smooks);
+
+            // The typed scalar is only in the execution context while its element is visited
+            Assert.assertEquals(Collections.singletonList(null), documentTypedScalars);
+            Assert.assertNull(context.get(YamlReader.TYPED_SCALAR));
+            Assert.assertEquals(14, typedScalars.size());
+            Assert.assertEquals("element", typedScalars.get(0).getElementName());
+            Assert.assertEquals("string1", typedScalars.get(0).getValue());
+            Assert.assertEquals(1, typedScalars.get(3).getValue());
+            Assert.assertEquals(1.1, typedScalars.get(4).getValue());
+            Assert.assertEquals(Boolean.TRUE, typedScalars.get(5).getValue());
+            Assert.assertEquals("null", typedScalars.get(7).getType());
+            Assert.assertNull(typedScalars.get(7).getValue());
+            Assert.assertNull(typedScalars.get(8).getValue());
+            Assert.assertEquals(Boolean.TRUE, typedScalars.get(9).getValue());
+            Assert.assertEquals(31, typedScalars.get(10).getValue());
+            Assert.assertEquals("timestamp", typedScalars.get(11).getType());
+            Assert.assertTrue(typedScalars.get(11).getValue() instanceof Date);
+            Assert.assertEquals("2", typedScalars.get(12).getValue());
+            Assert.assertEquals("str", typedScalars.get(13).getType());
+            Assert.assertEquals("3", typedScalars.get(13).getValue());
+        }
+
+        try {
+            smooks.filterSource(new StringSource("a: !!int abc\n"), new StringResult());
+            fail("Expected exception was not thrown!");
+        } catch (SmooksException e) {
+            Assert.assertTrue(e.getCause().getMessage().contains("The scalar 'abc' isn't a valid 'int'"));
+        }
+    }
+
+    @Test
+    public void test_parser_options() throws Exception {
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setIndent(true).setReaderBufferSize(16).setProcessComments(true).setNestingDepthLimit(4));
+        testProgrammaticConfig("yaml_map_array_map", smooks);
+
+        StringResult withComments = new StringResult();
+        smooks.filterSource(new StringSource("# comment\na: 1 # comment\nb:\n  # comment\n  - c: 2\n"), withComments);
+        StringResult withoutComments = new StringResult();
+        smooks.filterSource(new StringSource("a: 1\nb:\n  - c: 2\n"), withoutComments);
+        Assert.assertEquals(withoutComments.getResult(), withComments.getResult());
+
+        smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setNestingDepthLimit(2));
+        try {
+            smooks.filterSource(new StringSource("a:\n  b:\n    c: 1\n"), new StringResult());
+            fail("Expected exception was not thrown!");
+        } catch (SmooksException e) {
+            Assert.assertEquals("The mappings and sequences are nested deeper than the nesting depth limit of 2.", e.getCause().getMessage());
+        }
+
+        smooks = new Smooks();
+        smooks.setReaderConfig(new YamlReaderConfigurator().setCodePointLimit(10));
+        try {
+            smooks.filterSource(new StringSource("key: some value that is too long\n"), new StringResult());
+            fail("Expected exception was not thrown!");
+        } catch (SmooksException e) {
+            Assert.assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("code points"));
+        }
+    }
+
+    private String filter(YamlReaderConfigurator readerConfigurator, String input) {
+        Smooks smooks = new Smooks();
+        smooks.setReaderConfig(readerConfigurator.setCodePointLimit(Integer.MAX_VALUE));
+        StringResult result = new StringResult();
+        smooks.filterSource(new StringSource(input), result);
+        return result.getResult();
+    }
+
+    private YamlReader createYamlReader(Smooks smooks, YamlReaderConfigurator readerConfigurator) {
+        return createYamlReader(smooks, readerConfigurator.toConfig().get(0));
+    }
+
+    private YamlReader createYamlReader(Smooks smooks, ResourceConfig resourceConfig) {
+        Registry registry = smooks.getApplicationContext().getRegistry();
+        YamlReader yamlReader = new YamlReader();
+        registry.lookup(new LifecycleManagerLookup()).applyPhase(yamlReader,
+                new PostConstructLifecyclePhase(new Scope(registry, resourceConfig, yamlReader)));
+
+        return yamlReader;
+    }
+
+    /**
+     * The reader only sets the local name, which is all Smooks needs. A serializer needs the qName.
+     */
+    private static class LocalNameToQNameFilter extends XMLFilterImpl {
+
+        private LocalNameToQNameFilter(ContentHandler contentHandler) {
+            setContentHandler(contentHandler);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+            super.startElement(uri, localName, localName, atts);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            super.endElement(uri, localName, localName);
+        }
+    }
+
     private void testBasic(String testName) throws Exception {
         Smooks smooks = new Smooks();
 
@@ -0,0 +1,137 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.handler;
+
+import org.junit.Test;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class EventLogTest {
+
+    private static final String YAML = "a: &anchor\n  b: !custom 1\n  'c': \"2\"\n  d: [x, *anchor2, {e: f}]\n  g: |\n    literal\n  h: &anchor2 long" + new String(new char[100]).replace('\0', 'g') + "\n";
+
+    @Test
+    public void test_in_memory() throws Exception {
+        test(EventLog.UNLIMITED);
+    }
+
+    @Test
+    public void test_spilled() throws Exception {
+        test(0);
+    }
+
+    @Test
+    public void test_spilled_while_appending() throws Exception {
+        test(300);
+    }
+
+    private void test(long memoryBudget) throws Exception {
+        List<Event> events = new ArrayList<Event>();
+        for (Event event : new Yaml().parse(new StringReader(YAML))) {
+            if (event instanceof ScalarEvent || event instanceof CollectionStartEvent || event instanceof AliasEvent
+                    || event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+                events.add(event);
+            }
+        }
+
+        try (EventLog eventLog = new EventLog(memoryBudget)) {
+            for (int round = 0; round < 2; round++) {
+                for (Event event : events) {
+                    eventLog.append(event);
+                }
+                assertEquals(events.size(), eventLog.size());
+
+                List<Event> replayed = new ArrayList<Event>();
+                for (Event event : eventLog.range(0, eventLog.size())) {
+                    replayed.add(event);
+                }
+                assertEquals(toString(events), toString(replayed));
+
+                // A range that is replayed again returns the same events, unless they are read from the file
+                List<Event> replayedAgain = new ArrayList<Event>();
+                for (Event event : eventLog.range(0, eventLog.size())) {
+                    replayedAgain.add(event);
+                }
+                if (memoryBudget == EventLog.UNLIMITED) {
+                    for (int i = 0; i < replayed.size(); i++) {
+                        assertSame(replayed.get(i), replayedAgain.get(i));
+                    }
+                }
+                assertEquals(toString(events), toString(replayedAgain));
+
+                eventLog.clear();
+            }
+        }
+    }
+
+    private static List<String> toString(List<Event> events) {
+        List<String> strings = new ArrayList<String>();
+        for (Event event : events) {
+            StringBuilder string = new StringBuilder(event.getEventId().toString());
+            if (event instanceof ScalarEvent) {
+                ScalarEvent scalarEvent = (ScalarEvent) event;
+                string.append(' ').append(scalarEvent.getAnchor()).append(' ').append(scalarEvent.getTag())
+                        .append(' ').append(scalarEvent.getImplicit()).append(' ').append(scalarEvent.getScalarStyle())
+                        .append(' ').append(scalarEvent.getValue());
+            } else if (event instanceof CollectionStartEvent) {
+                CollectionStartEvent collectionStartEvent = (CollectionStartEvent) event;
+                string.append(' ').append(collectionStartEvent.getAnchor()).append(' ').append(collectionStartEvent.getTag())
+                        .append(' ').append(collectionStartEvent.getImplicit()).append(' ').append(collectionStartEvent.getFlowStyle());
+            } else if (event instanceof AliasEvent) {
+                string.append(' ').append(((AliasEvent) event).getAnchor());
+            }
+            strings.add(string.toString());
+        }
+        return strings;
+    }
+}
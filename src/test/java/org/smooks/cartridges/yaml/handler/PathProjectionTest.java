@@ -0,0 +1,103 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.handler;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class PathProjectionTest {
+
+    @Test
+    public void test_element_names_and_wildcards() {
+        PathProjection projection = PathProjection.compile(Arrays.asList("/document/spec/containers/*/image", "/document/kind"));
+
+        PathProjection.State document = projection.getStartState().next("document");
+        assertPartial(document);
+        assertSame(PathProjection.MATCH, document.next("kind"));
+        assertSame(PathProjection.NO_MATCH, document.next("metadata"));
+
+        PathProjection.State element = document.next("spec").next("containers").next("element");
+        assertPartial(element);
+        assertSame(PathProjection.MATCH, element.next("image"));
+        assertSame(PathProjection.NO_MATCH, element.next("name"));
+        assertSame(PathProjection.MATCH, element.next("image").next("anything"));
+
+        // The states are shared
+        assertSame(element, document.next("spec").next("containers").next("other"));
+    }
+
+    @Test
+    public void test_any_number_of_elements() {
+        PathProjection projection = PathProjection.compile(Arrays.asList("/document/**/image"));
+
+        PathProjection.State document = projection.getStartState().next("document");
+        assertSame(PathProjection.MATCH, document.next("image"));
+        assertSame(PathProjection.MATCH, document.next("a").next("b").next("image"));
+        assertPartial(document.next("a").next("b"));
+        assertSame(PathProjection.NO_MATCH, projection.getStartState().next("other"));
+
+        assertSame(PathProjection.MATCH, PathProjection.compile(Arrays.asList("/**")).getStartState());
+    }
+
+    @Test
+    public void test_invalid_paths() {
+        for (String path : new String[] {"", "/", "/document//image"}) {
+            try {
+                PathProjection.compile(Arrays.asList(path));
+                fail("Expected an IllegalArgumentException for: " + path);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    private void assertPartial(PathProjection.State state) {
+        assertFalse(state.isMatch());
+        assertFalse(state.isNoMatch());
+    }
+}
@@ -0,0 +1,151 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.handler;
+
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class SaxEventPipeTest {
+
+    @Test
+    public void test_capacity() {
+        assertEquals(1, new SaxEventPipe(1).getCapacity());
+        assertEquals(4, new SaxEventPipe(3).getCapacity());
+        assertEquals(1024, new SaxEventPipe(SaxEventPipe.DEFAULT_CAPACITY).getCapacity());
+    }
+
+    @Test
+    public void test_replay() throws Exception {
+        SaxEventPipe pipe = new SaxEventPipe(2);
+
+        for (int run = 0; run < 2; run++) {
+            pipe.reset();
+            Thread producer = new Thread(() -> {
+                try {
+                    ContentHandler handler = pipe.getProducerHandler();
+                    AttributesImpl attributes = new AttributesImpl();
+                    char[] chars = new char[3];
+                    for (int i = 0; i < 1000; i++) {
+                        attributes.clear();
+                        attributes.addAttribute("", "id", "id", "CDATA", Integer.toString(i));
+                        handler.startElement("", "e", "", attributes);
+                        String value = Integer.toString(i);
+                        value.getChars(0, value.length(), chars, 0);
+                        handler.characters(chars, 0, value.length());
+                        handler.endElement("", "e", "");
+                    }
+                    pipe.end();
+                } catch (SAXException e) {
+                    pipe.fail(e);
+                }
+            });
+            producer.start();
+
+            StringBuilder replayed = new StringBuilder();
+            pipe.replay(new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    replayed.append('<').append(localName).append(' ').append(attributes.getValue("id")).append('>');
+                }
+
+                @Override
+                public void characters(char[] ch, int start, int length) {
+                    replayed.append(ch, start, length);
+                }
+
+                @Override
+                public void endElement(String uri, String localName, String qName) {
+                    replayed.append("</").append(localName).append('>');
+                }
+            });
+            producer.join();
+
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < 1000; i++) {
+                expected.append("<e ").append(i).append('>').append(i).append("</e>");
+            }
+            assertEquals(expected.toString(), replayed.toString());
+        }
+    }
+
+    @Test
+    public void test_producer_failure() throws Exception {
+        SaxEventPipe pipe = new SaxEventPipe(4);
+        IOException failure = new IOException("Broken stream");
+
+        pipe.getProducerHandler().endElement("", "e", "");
+        pipe.fail(failure);
+
+        try {
+            pipe.replay(new DefaultHandler());
+            fail("Expected exception was not thrown!");
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    @Test
+    public void test_cancel() throws Exception {
+        SaxEventPipe pipe = new SaxEventPipe(1);
+
+        pipe.getProducerHandler().endElement("", "e", "");
+        pipe.cancel();
+
+        try {
+            pipe.getProducerHandler().endElement("", "e", "");
+            fail("Expected exception was not thrown!");
+        } catch (SAXException e) {
+            assertEquals("The consumer of the SAX events stopped.", e.getMessage());
+        }
+    }
+}
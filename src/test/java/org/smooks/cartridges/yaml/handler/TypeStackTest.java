@@ -0,0 +1,89 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.handler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TypeStackTest {
+
+    @Test
+    public void test_push_pop_beyond_word_boundaries() {
+        TypeStack typeStack = new TypeStack();
+
+        for (int i = 0; i < 200; i++) {
+            typeStack.push(i % 3 == 0);
+        }
+        assertEquals(200, typeStack.size());
+
+        for (int i = 199; i >= 0; i--) {
+            assertEquals(i % 3 == 0, typeStack.peekIsSequence());
+            typeStack.pop();
+        }
+        assertEquals(0, typeStack.size());
+    }
+
+    @Test
+    public void test_truncate_and_reuse() {
+        TypeStack typeStack = new TypeStack();
+        NameStack nameStack = new NameStack();
+
+        for (int i = 0; i < 70; i++) {
+            typeStack.push(true);
+            nameStack.push("name" + i);
+        }
+        typeStack.truncate(65);
+        nameStack.truncate(65);
+
+        typeStack.push(false);
+        nameStack.push("other");
+
+        assertEquals(false, typeStack.peekIsSequence());
+        assertEquals("other", nameStack.pop());
+        typeStack.pop();
+        assertEquals(true, typeStack.peekIsSequence());
+        assertEquals("name64", nameStack.peek());
+        assertEquals(65, nameStack.size());
+    }
+}
@@ -0,0 +1,141 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+public class CharsetDecodingReaderTest {
+
+    private static final String TEXT = "key: \u00e4\u00f6\u00fc \u20ac \uD83D\uDE00\nother key: value\n";
+
+    private static final String[] ENCODINGS = {"UTF-8", "UTF-16BE", "UTF-16LE", "UTF-32BE", "UTF-32LE"};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test_input_stream_with_small_buffer() throws Exception {
+        InputStreamDecodingReader reader = new InputStreamDecodingReader(4);
+
+        for (String encoding : ENCODINGS) {
+            for (String bom : new String[]{"", "\uFEFF"}) {
+                byte[] bytes = (bom + TEXT).getBytes(encoding);
+
+                reader.reset(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+
+                assertEquals(encoding, TEXT, readFully(reader));
+            }
+        }
+    }
+
+    @Test
+    public void test_input_stream_default_charset() throws Exception {
+        InputStreamDecodingReader reader = new InputStreamDecodingReader();
+
+        reader.reset(new ByteArrayInputStream(TEXT.getBytes(StandardCharsets.ISO_8859_1)), StandardCharsets.ISO_8859_1);
+
+        assertEquals(new String(TEXT.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.ISO_8859_1), readFully(reader));
+    }
+
+    @Test
+    public void test_empty_input_stream() throws Exception {
+        InputStreamDecodingReader reader = new InputStreamDecodingReader();
+
+        reader.reset(new ByteArrayInputStream(new byte[0]), StandardCharsets.UTF_8);
+
+        assertEquals("", readFully(reader));
+    }
+
+    @Test
+    public void test_mapped_file_with_small_windows() throws Exception {
+        MappedFileDecodingReader reader = new MappedFileDecodingReader(5, 3);
+
+        for (String encoding : ENCODINGS) {
+            for (String bom : new String[]{"", "\uFEFF"}) {
+                Path file = temporaryFolder.newFile().toPath();
+                Files.write(file, (bom + TEXT).getBytes(encoding));
+
+                try {
+                    reader.open(file, StandardCharsets.UTF_8);
+
+                    assertEquals(encoding, TEXT, readFully(reader));
+                } finally {
+                    reader.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_empty_mapped_file() throws Exception {
+        Path file = temporaryFolder.newFile().toPath();
+
+        try (MappedFileDecodingReader reader = new MappedFileDecodingReader()) {
+            reader.open(file, Charset.forName("UTF-8"));
+
+            assertEquals("", readFully(reader));
+        }
+    }
+
+    private String readFully(Reader reader) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[7];
+        int read;
+        while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            builder.append(buffer, 0, read);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,105 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.io;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class YamlDocumentSplitterTest {
+
+    @Test
+    public void test_document_markers() throws Exception {
+        assertEquals(Arrays.asList("- 1\n- 2\n", "---\n- 3\n...\n", "--- # comment\nkey: value\n...\n"),
+                split("- 1\n- 2\n---\n- 3\n...\n--- # comment\nkey: value\n...\n"));
+
+        // A document end marker without a document is only ignored after a document
+        assertEquals(Arrays.asList("# comment\n...\n", "a: 1\n...\n"),
+                split("# comment\n...\na: 1\n...\n...\n# comment\n...\n"));
+        assertEquals(Arrays.asList("a: 1\n", "%YAML 1.2\n...\n"),
+                split("a: 1\n%YAML 1.2\n...\n"));
+    }
+
+    @Test
+    public void test_directives_and_comments() throws Exception {
+        assertEquals(Arrays.asList("# comment\n%YAML 1.2\n---\na: 1\n...\n", "%TAG ! tag:example.com,2000:\n--- !foo\nb: 2\n", "---\n...\n"),
+                split("\uFEFF# comment\n%YAML 1.2\n---\na: 1\n...\n%TAG ! tag:example.com,2000:\n--- !foo\nb: 2\n---\n...\n# trailing comment\n"));
+    }
+
+    @Test
+    public void test_markers_not_at_first_column() throws Exception {
+        assertEquals(Arrays.asList("a: |\n  ---\n  ...\nb: '---'\nc: ----\n"),
+                split("a: |\n  ---\n  ...\nb: '---'\nc: ----\n"));
+    }
+
+    @Test
+    public void test_line_breaks() throws Exception {
+        assertEquals(Arrays.asList("a: 1\n", "---\nb: >\n  folded"),
+                split("a: 1\r\n---\rb: >\r\n  folded"));
+    }
+
+    @Test
+    public void test_large_document() throws Exception {
+        StringBuilder large = new StringBuilder("a: |\n");
+        while (large.length() < 200000) {
+            large.append("  line \uD83D\uDE00 ").append(large.length()).append('\n');
+        }
+        assertEquals(Arrays.asList(large.toString(), "---\nb: 1\n", "---\n" + large), split(large + "---\nb: 1\n---\n" + large));
+    }
+
+    private List<String> split(String yaml) throws IOException {
+        YamlDocumentSplitter splitter = new YamlDocumentSplitter(new StringReader(yaml));
+        List<String> documents = new ArrayList<>();
+        String document;
+        while ((document = splitter.nextDocument()) != null) {
+            documents.add(document);
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,266 @@
+/*-
+ * ========================LICENSE_START=================================
+ * smooks-yaml-cartridge
+ * %%
+ * Copyright (C) 2020 Smooks
+ * %%
+ * Licensed under the terms of the Apache License Version 2.0, or
+ * the GNU Lesser General Public License version 3.0 or later.
+ * 
+ * SPDX-License-Identifier: Apache-2.0 OR LGPL-3.0-or-later
+ * 
+ * ======================================================================
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * ======================================================================
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ * =========================LICENSE_END==================================
+ */
+package org.smooks.cartridges.yaml.parser;
+
+import org.junit.Test;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Compares the events of the native parser with the events of SnakeYAML.
+ */
+public class NativeYamlParserTest {
+
+    /**
+     * The fixtures with tags, which aren't in the supported subset.
+     */
+    private static final List<String> FALLBACK_FIXTURES = Arrays.asList("yaml_types", "yaml_types_typed");
+
+    @Test
+    public void test_fixtures() throws Exception {
+        File[] fixtures = new File("src/test/resources/test").listFiles();
+        assertTrue(fixtures != null && fixtures.length > 0);
+
+        for (File fixture : fixtures) {
+            File input = new File(fixture, "input-message.yaml");
+            if (input.exists()) {
+                String yaml = new String(Files.readAllBytes(input.toPath()), StandardCharsets.UTF_8);
+                NativeYamlParser parser = assertSameEvents(yaml);
+
+                int expectedFallbacks = FALLBACK_FIXTURES.contains(fixture.getName()) ? 1 : 0;
+                assertEquals(fixture.getName(), expectedFallbacks, parser.getFallbackCount());
+            }
+        }
+    }
+
+    @Test
+    public void test_supported_subset() throws Exception {
+        String[] documents = {
+                "",
+                "---\n",
+                "--- # comment\na: 1\n...\n",
+                "plain\n",
+                "a: 1\nb:\n  c: 2\n  d: [1, 'two', \"three\"]\ne:\n- x\n- y\nf:\n",
+                "- - a\n  - b\n- c\n-\n- d: 1\n  e: 2\n",
+                "a: {b: 1, c: , d: [x, y, ], e: {}}\nf: []\n",
+                "a: &x 1\nb: *x\nc: &y\n  d: 2\ne: *y\nf: &z\n- 1\ng: [*x, &w 3]\n",
+                "a: 'it''s'\nb: \"tab\\tnew\\nline \\u00e9 \\x41 \\\\ \\\" \\U0001F600\"\nc: ''\n",
+                "a b: c d # comment\n'quoted key': \"value\"\nurl: http://example.com:8080/x#y\nneg: -1\n",
+                "a: 1\n---\n- 2\n...\n---\nb: 3\n",
+                "a: 1\n...\n...\n# comment\n...\n",
+                "# leading comment\n\na: 1 # trailing\n\n# between\nb: 2\n",
+                "a: [1,\n  2]\n",
+                "a: |\n  block\n",
+                "a: >-\n  folded\n",
+                "a: |+\n  keep\n\n\nb: |-\n  strip\n\n\nc: |\n  clip\n\n\n",
+                "a: >\n  one\n  two\n\n  three\n\n\n  four\n    more\n    indented\n  five\n   \n  six\n",
+                "a: |\n  line\n\n    indented\n  \ttab\n# not a comment\nb: 1\n",
+                "a: >+ # comment\n  x\n",
+                "- |\n  one\n- >\n two\n  three\n- &x |-\n  anchored\n- *x\n",
+                "a:\n  b: |\n    nested\n  c: 1\n",
+                "|\n top\n",
+                "a: |\n  no break",
+                "a: |\n\n  leading\n",
+                "a: |\n  x\n---\nb: >\n  y\n",
+        };
+        for (String document : documents) {
+            NativeYamlParser parser = assertSameEvents(document);
+            assertEquals(document, 0, parser.getFallbackCount());
+        }
+    }
+
+    @Test
+    public void test_fallback() throws Exception {
+        String[] documents = {
+                "a: |2\n  block\n",
+                "a: |\nb: 1\n",
+                "--- |\n  top\n...\n",
+                "a: !!str 1\n",
+                "a: multi\n  line plain\n",
+                "a: 'multi\n  line quoted'\n",
+                "%YAML 1.1\n---\na: 1\n",
+                "--- a\n",
+                "? complex\n: key\n",
+                "&a key: value\n",
+                "{a, b}\n",
+        };
+        for (String document : documents) {
+            NativeYamlParser parser = assertSameEvents(document);
+            assertEquals(document, 1, parser.getFallbackCount());
+        }
+
+        StringBuilder deep = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            deep.append('[');
+        }
+        for (int i = 0; i < 20000; i++) {
+            deep.append(']');
+        }
+        StringBuilder deepBlock = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            for (int j = 0; j < i; j++) {
+                deepBlock.append(' ');
+            }
+            deepBlock.append('k').append(":\n");
+        }
+        for (String document : new String[] {deep + "\n", deepBlock.toString()}) {
+            NativeYamlParser parser = assertSameEvents(document);
+            assertEquals(1, parser.getFallbackCount());
+        }
+
+        NativeYamlParser parser = assertSameEvents("a: 1\n---\nb: !!str 2\n---\nc: 3\n");
+        assertEquals(3, parser.getDocumentCount());
+        assertEquals(1, parser.getFallbackCount());
+    }
+
+    @Test
+    public void test_malformed() throws Exception {
+        String[] documents = {
+                "a: b: c\n",
+                "a: [1, 2\n",
+                "a: 1\n  b: 2\n",
+                "a: \"\\/\"\n",
+                "a:\tb\n",
+                "a: |\n    x\n  y\n",
+                "...",
+                "# comment\n...\na: 1\n",
+                "%YAML 1.1\n...\n",
+        };
+        for (String document : documents) {
+            try {
+                parse(document);
+                fail("Expected a YAMLException for: " + document);
+            } catch (YAMLException e) {
+                // The malformed documents are parsed by SnakeYAML, which reports the error
+            }
+        }
+    }
+
+    private NativeYamlParser assertSameEvents(String yaml) throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (Event event : new Yaml().parse(new StringReader(yaml))) {
+            expected.add(describe(event));
+        }
+
+        List<String> actual = new ArrayList<>();
+        NativeYamlParser parser = new NativeYamlParser(new LoaderOptions());
+        parser.parse(new StringReader(yaml), event -> actual.add(describe(event)));
+
+        assertEquals(yaml, expected, actual);
+
+        List<String> streamed = new ArrayList<>();
+        new NativeYamlParser(new LoaderOptions(), 0).parse(new StringReader(yaml), new EventSink() {
+            @Override
+            public void event(Event event) {
+                streamed.add(describe(event));
+            }
+
+            @Override
+            public void blockScalar(BlockScalar blockScalar) throws SAXException {
+                StringBuilder value = new StringBuilder();
+                blockScalar.writeTo(new DefaultHandler() {
+                    @Override
+                    public void characters(char[] ch, int start, int length) {
+                        value.append(ch, start, length);
+                    }
+                }, new char[3]);
+                streamed.add(describe(new ScalarEvent(blockScalar.getAnchor(), null, blockScalar.getImplicit(), value.toString(), null, null, blockScalar.getScalarStyle())));
+            }
+        });
+        assertEquals(yaml, expected, streamed);
+
+        return parser;
+    }
+
+    private void parse(String yaml) throws Exception {
+        new NativeYamlParser(new LoaderOptions()).parse(new StringReader(yaml), event -> { });
+    }
+
+    private String describe(Event event) {
+        StringBuilder description = new StringBuilder(event.getEventId().name());
+        if (event instanceof NodeEvent) {
+            description.append(" anchor=").append(((NodeEvent) event).getAnchor());
+        }
+        if (event instanceof ScalarEvent) {
+            ScalarEvent scalarEvent = (ScalarEvent) event;
+            description.append(" tag=").append(scalarEvent.getTag())
+                    .append(" implicit=").append(scalarEvent.getImplicit())
+                    .append(" style=").append(scalarEvent.getScalarStyle())
+                    .append(" value=").append(scalarEvent.getValue());
+        }
+        if (event instanceof CollectionStartEvent) {
+            CollectionStartEvent collectionStartEvent = (CollectionStartEvent) event;
+            description.append(" tag=").append(collectionStartEvent.getTag())
+                    .append(" implicit=").append(collectionStartEvent.getImplicit())
+                    .append(" flowStyle=").append(collectionStartEvent.getFlowStyle());
+        }
+        if (event instanceof DocumentStartEvent) {
+            description.append(" explicit=").append(((DocumentStartEvent) event).getExplicit());
+        }
+        if (event instanceof DocumentEndEvent) {
+            description.append(" explicit=").append(((DocumentEndEvent) event).getExplicit());
+        }
+        return description.toString();
+    }
+}